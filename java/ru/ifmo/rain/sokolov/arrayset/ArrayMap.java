@@ -0,0 +1,244 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import java.util.*;
+
+public class ArrayMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    private final ArraySet<K> keys;
+    private final List<V> values;
+
+    public ArrayMap() {
+        this(Collections.emptyMap(), null);
+    }
+
+    public ArrayMap(Map<? extends K, ? extends V> map) {
+        this(map, null);
+    }
+
+    public ArrayMap(Comparator<? super K> cmp) {
+        this(Collections.emptyMap(), cmp);
+    }
+
+    public ArrayMap(Map<? extends K, ? extends V> map, Comparator<? super K> cmp) {
+        this(columns(map, cmp), cmp);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayMap(Object[][] columns, Comparator<? super K> cmp) {
+        this(ArraySet.ofSorted((List<K>) Collections.unmodifiableList(Arrays.asList(columns[0])), cmp),
+                (List<V>) Collections.unmodifiableList(Arrays.asList(columns[1])));
+    }
+
+    private ArrayMap(ArraySet<K> keys, List<V> values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object[][] columns(Map<?, ?> map, Comparator<?> cmp) {
+        var entries = map.entrySet().toArray(new Map.Entry<?, ?>[0]);
+        var order = (Comparator<Object>) (cmp != null ? cmp : Comparator.naturalOrder());
+        if (!(map instanceof SortedMap && Objects.equals(((SortedMap<?, ?>) map).comparator(), cmp))) {
+            Arrays.sort(entries, (a, b) -> order.compare(a.getKey(), b.getKey()));
+        }
+        var keys = new Object[entries.length];
+        var values = new Object[entries.length];
+        int size = 0;
+        for (var entry : entries) {
+            var key = Objects.requireNonNull(entry.getKey());
+            if (size > 0 && order.compare(keys[size - 1], key) == 0) {
+                values[size - 1] = entry.getValue();
+            } else {
+                keys[size] = key;
+                values[size++] = entry.getValue();
+            }
+        }
+        return new Object[][]{Arrays.copyOf(keys, size), Arrays.copyOf(values, size)};
+    }
+
+    private Entry<K, V> entry(int index) {
+        return index < 0 || index >= size() ? null : new SimpleImmutableEntry<>(keys.get(index), values.get(index));
+    }
+
+    private ArrayMap<K, V> range(int left, int right) {
+        return new ArrayMap<>(keys.range(left, right), right <= left ? List.of() : values.subList(left, right));
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.contains(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        int index = keys.search(key);
+        return index >= 0 ? values.get(index) : null;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < size();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return entry(index++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public ArraySet<K> keySet() {
+        return keys;
+    }
+
+    @Override
+    public ArraySet<K> navigableKeySet() {
+        return keys;
+    }
+
+    @Override
+    public ArraySet<K> descendingKeySet() {
+        return keys.descendingSet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return values;
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return entry(keys.abstractFind(key, -1, -1));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keys.lower(key);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return entry(keys.abstractFind(key, 0, -1));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keys.floor(key);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return entry(keys.abstractFind(key, 0, 0));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keys.ceiling(key);
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return entry(keys.abstractFind(key, 1, 0));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keys.higher(key);
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return entry(0);
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return entry(size() - 1);
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+        throw new UnsupportedOperationException("Error: pollFirstEntry is unsupported");
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+        throw new UnsupportedOperationException("Error: pollLastEntry is unsupported");
+    }
+
+    @Override
+    public ArrayMap<K, V> descendingMap() {
+        return new ArrayMap<>(keys.descendingSet(), new ReversedList<>(values));
+    }
+
+    @Override
+    public ArrayMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        keys.checkOnException(fromKey, toKey);
+        return range(keys.abstractFind(fromKey, fromInclusive ? 0 : 1, 0),
+                keys.abstractFind(toKey, toInclusive ? 0 : -1, -1) + 1);
+    }
+
+    @Override
+    public ArrayMap<K, V> headMap(K toKey, boolean inclusive) {
+        return range(0, keys.abstractFind(toKey, inclusive ? 0 : -1, -1) + 1);
+    }
+
+    @Override
+    public ArrayMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return range(keys.abstractFind(fromKey, inclusive ? 0 : 1, 0), size());
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return keys.comparator();
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public K firstKey() {
+        return keys.first();
+    }
+
+    @Override
+    public K lastKey() {
+        return keys.last();
+    }
+}
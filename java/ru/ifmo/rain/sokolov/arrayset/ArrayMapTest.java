@@ -0,0 +1,65 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ArrayMapTest {
+    private final Random random = new Random(2019);
+
+    private static void assertSame(NavigableMap<Integer, String> expected, NavigableMap<Integer, String> actual,
+                                   int from, int to) {
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+        for (int key = from; key <= to; ++key) {
+            assertEquals(expected.get(key), actual.get(key));
+            assertEquals(expected.containsKey(key), actual.containsKey(key));
+            assertEquals(expected.lowerEntry(key), actual.lowerEntry(key));
+            assertEquals(expected.floorEntry(key), actual.floorEntry(key));
+            assertEquals(expected.ceilingKey(key), actual.ceilingKey(key));
+            assertEquals(expected.higherEntry(key), actual.higherEntry(key));
+            assertEquals(expected.headMap(key, true), actual.headMap(key, true));
+            assertEquals(expected.tailMap(key, false), actual.tailMap(key, false));
+        }
+    }
+
+    @Test
+    public void matchesTreeMap() {
+        for (int size : new int[]{0, 1, 5, 100, 1000}) {
+            var expected = new TreeMap<Integer, String>();
+            var source = new HashMap<Integer, String>();
+            for (int i = 0; i < size; ++i) {
+                int key = random.nextInt(2 * size + 1);
+                expected.put(key, "v" + i);
+                source.put(key, "v" + i);
+            }
+            var map = new ArrayMap<>(source);
+            assertSame(expected, map, -1, 2 * size + 1);
+            assertSame(expected.descendingMap(), map.descendingMap(), -1, 2 * size + 1);
+            assertSame(expected.subMap(size / 3, true, size, false), map.subMap(size / 3, true, size, false),
+                    size / 3, size - 1);
+            assertEquals(expected.firstEntry(), map.firstEntry());
+            assertEquals(expected.lastEntry(), map.lastEntry());
+        }
+    }
+
+    @Test
+    public void lastValueOfEqualKeysWins() {
+        var source = new LinkedHashMap<String, Integer>();
+        source.put("a", 1);
+        source.put("B", 2);
+        source.put("A", 3);
+        var map = new ArrayMap<>(source, String.CASE_INSENSITIVE_ORDER);
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(3), map.get("a"));
+        assertEquals(Integer.valueOf(2), map.get("b"));
+        assertEquals("a", map.firstKey());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void immutable() {
+        new ArrayMap<>(Map.of(1, "a")).pollFirstEntry();
+    }
+}
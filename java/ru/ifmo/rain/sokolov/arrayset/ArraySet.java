@@ -1,14 +1,23 @@
 package ru.ifmo.rain.sokolov.arrayset;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    private static final int PARALLEL_MERGE_THRESHOLD = 1 << 16;
+    private static final int GALLOP_RATIO = 8;
+    private static final int MAX_INDEXED_SIZE = Integer.MAX_VALUE - 9;
+
     private final List<T> data;
     private final Comparator<? super T> comparator;
+    private final Object[] layout;
+    private final int[] ranks;
 
     public ArraySet() {
         this(Collections.emptyList(), null);
@@ -23,29 +32,256 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     public ArraySet(Collection<? extends T> data, Comparator<? super T> cmp) {
-        var s = new TreeSet<T>(cmp);
-        s.addAll(data);
-        this.data = List.copyOf(s);
-        this.comparator = cmp;
+        this(sorted(data, cmp), cmp);
     }
 
     private ArraySet(List<T> data, Comparator<? super T> cmp) {
+        this(data, cmp, null, null);
+    }
+
+    private ArraySet(List<T> data, Comparator<? super T> cmp, Object[] layout, int[] ranks) {
         this.data = data;
         this.comparator = cmp;
+        this.layout = layout;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Wraps a list that is already sorted by {@code cmp} and has no equal elements, without copying or checking it.
+     */
+    static <T> ArraySet<T> ofSorted(List<T> data, Comparator<? super T> cmp) {
+        return new ArraySet<>(data, cmp);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> sorted(Collection<? extends T> data, Comparator<? super T> cmp) {
+        if (data instanceof ArraySet && Objects.equals(((ArraySet<?>) data).comparator, cmp)) {
+            return ((ArraySet<T>) data).data;
+        }
+        var array = data.toArray();
+        for (var element : array) {
+            Objects.requireNonNull(element);
+        }
+        if (data instanceof SortedSet && Objects.equals(((SortedSet<?>) data).comparator(), cmp)) {
+            return (List<T>) Collections.unmodifiableList(Arrays.asList(array));
+        }
+        var order = (Comparator<Object>) (cmp != null ? cmp : Comparator.naturalOrder());
+        int i = 1;
+        while (i < array.length && order.compare(array[i - 1], array[i]) <= 0) {
+            ++i;
+        }
+        if (i < array.length) {
+            if (array.length >= PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(array, order);
+            } else {
+                Arrays.sort(array, order);
+            }
+        }
+        int size = Math.min(array.length, 1);
+        for (i = 1; i < array.length; ++i) {
+            if (order.compare(array[size - 1], array[i]) != 0) {
+                array[size++] = array[i];
+            }
+        }
+        var result = size == array.length ? array : Arrays.copyOf(array, size);
+        return (List<T>) Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    private enum Operation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    public static <T> ArraySet<T> union(ArraySet<T> a, ArraySet<T> b) {
+        return combine(a, b, Operation.UNION);
+    }
+
+    public static <T> ArraySet<T> intersection(ArraySet<T> a, ArraySet<T> b) {
+        return combine(a, b, Operation.INTERSECTION);
+    }
+
+    public static <T> ArraySet<T> difference(ArraySet<T> a, ArraySet<T> b) {
+        return combine(a, b, Operation.DIFFERENCE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArraySet<T> combine(ArraySet<T> a, ArraySet<T> b, Operation operation) {
+        if (!Objects.equals(a.comparator, b.comparator)) {
+            throw new IllegalArgumentException("Sets should have the same comparator");
+        }
+        int pieces = a.size() + b.size() >= PARALLEL_MERGE_THRESHOLD ? ForkJoinPool.getCommonPoolParallelism() : 1;
+        var larger = a.size() >= b.size() ? a : b;
+        var aBounds = new int[pieces + 1];
+        var bBounds = new int[pieces + 1];
+        for (int i = 1; i < pieces; ++i) {
+            int index = (int) ((long) i * larger.size() / pieces);
+            var pivot = larger.data.get(index);
+            aBounds[i] = a == larger ? index : a.abstractFind(pivot, 0, 0);
+            bBounds[i] = b == larger ? index : b.abstractFind(pivot, 0, 0);
+        }
+        aBounds[pieces] = a.size();
+        bBounds[pieces] = b.size();
+        var parts = IntStream.range(0, pieces).parallel()
+                .mapToObj(i -> a.merge(b, aBounds[i], aBounds[i + 1], bBounds[i], bBounds[i + 1], operation))
+                .toArray(Object[][]::new);
+        var result = parts[0];
+        if (parts.length > 1) {
+            result = new Object[Arrays.stream(parts).mapToInt(part -> part.length).sum()];
+            int size = 0;
+            for (var part : parts) {
+                System.arraycopy(part, 0, result, size, part.length);
+                size += part.length;
+            }
+        }
+        return new ArraySet<>((List<T>) Collections.unmodifiableList(Arrays.asList(result)), a.comparator);
+    }
+
+    private Object[] merge(ArraySet<T> other, int i, int aTo, int j, int bTo, Operation operation) {
+        int n = aTo - i;
+        int m = bTo - j;
+        int capacity = operation == Operation.UNION ? n + m : operation == Operation.INTERSECTION ? Math.min(n, m) : n;
+        var result = new Object[capacity];
+        int size = 0;
+        var b = other.data;
+        if (Math.max(n, m) > GALLOP_RATIO * Math.min(n, m)) {
+            while (i < aTo && j < bTo) {
+                int next = gallop(data, i, aTo, b.get(j));
+                if (operation != Operation.INTERSECTION) {
+                    size = copy(data, i, next, result, size);
+                }
+                if ((i = next) == aTo) {
+                    break;
+                }
+                next = gallop(b, j, bTo, data.get(i));
+                if (operation == Operation.UNION) {
+                    size = copy(b, j, next, result, size);
+                }
+                if ((j = next) == bTo) {
+                    break;
+                }
+                if (compare(data.get(i), b.get(j)) == 0) {
+                    if (operation != Operation.DIFFERENCE) {
+                        result[size++] = data.get(i);
+                    }
+                    ++i;
+                    ++j;
+                }
+            }
+        } else {
+            while (i < aTo && j < bTo) {
+                int c = compare(data.get(i), b.get(j));
+                if (c < 0) {
+                    if (operation != Operation.INTERSECTION) {
+                        result[size++] = data.get(i);
+                    }
+                    ++i;
+                } else if (c > 0) {
+                    if (operation == Operation.UNION) {
+                        result[size++] = b.get(j);
+                    }
+                    ++j;
+                } else {
+                    if (operation != Operation.DIFFERENCE) {
+                        result[size++] = data.get(i);
+                    }
+                    ++i;
+                    ++j;
+                }
+            }
+        }
+        if (operation != Operation.INTERSECTION) {
+            size = copy(data, i, aTo, result, size);
+        }
+        if (operation == Operation.UNION) {
+            size = copy(b, j, bTo, result, size);
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private int gallop(List<T> list, int from, int to, T key) {
+        int low = from;
+        int high = from;
+        for (int step = 1; high < to && compare(list.get(high), key) < 0; step <<= 1) {
+            low = high + 1;
+            high = low + step;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(list.get(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int copy(List<?> list, int from, int to, Object[] result, int size) {
+        for (int i = from; i < to; ++i) {
+            result[size++] = list.get(i);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the same set with an auxiliary index of its elements in Eytzinger (breadth-first) order, which
+     * makes lookups touch fewer cache lines on large sets. Subsets and descending sets of the result
+     * use plain binary search, as do sets too large for the index arrays.
+     */
+    public ArraySet<T> withSearchIndex() {
+        if (layout != null || size() > MAX_INDEXED_SIZE) {
+            return this;
+        }
+        var layout = new Object[size() + 1];
+        var ranks = new int[size() + 1];
+        fillLayout(layout, ranks, 0, 1);
+        return new ArraySet<>(data, comparator, layout, ranks);
+    }
+
+    private int fillLayout(Object[] layout, int[] ranks, int index, long node) {
+        if (node < layout.length) {
+            index = fillLayout(layout, ranks, index, 2 * node);
+            layout[(int) node] = data.get(index);
+            ranks[(int) node] = index++;
+            index = fillLayout(layout, ranks, index, 2 * node + 1);
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator != null
+                ? ((Comparator<Object>) comparator).compare(a, b)
+                : ((Comparable<Object>) a).compareTo(b);
     }
 
-    @Override
     @SuppressWarnings("unchecked")
+    int search(Object o) {
+        if (layout == null) {
+            return Collections.binarySearch(data, o, (Comparator<Object>) comparator);
+        }
+        long node = 1;
+        while (node < layout.length) {
+            node = 2 * node + (compare(layout[(int) node], o) < 0 ? 1 : 0);
+        }
+        int found = (int) (node >> Long.numberOfTrailingZeros(~node) + 1);
+        if (found == 0) {
+            return ~size();
+        }
+        return compare(layout[found], o) == 0 ? ranks[found] : ~ranks[found];
+    }
+
+    @Override
     public boolean contains(Object o) {
-        return Collections.binarySearch(data, o, (Comparator<Object>) comparator) >= 0;
+        return search(o) >= 0;
     }
 
-    private T get(int index) {
+    T get(int index) {
         return ((index < 0 || index >= size()) ? null : data.get(index));
     }
 
-    private int abstractFind(T t, int inclusive, int lower) {
-        int pos = Collections.binarySearch(data, t, comparator);
+    int abstractFind(T t, int inclusive, int lower) {
+        int pos = search(t);
         return (pos >= 0 ? pos + inclusive : ~pos + lower);
     }
 
@@ -57,6 +293,38 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return get(abstractFind(t, inclusive ? 0 : 1, 0));
     }
 
+    /**
+     * Returns the number of elements of this set that go before {@code t}.
+     */
+    public int rank(T t) {
+        return abstractFind(t, 0, 0);
+    }
+
+    /**
+     * Returns the element with the given index in iteration order.
+     */
+    public T select(int index) {
+        return data.get(Objects.checkIndex(index, size()));
+    }
+
+    public int countInRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        checkOnException(fromElement, toElement);
+        int left = abstractFind(fromElement, fromInclusive ? 0 : 1, 0);
+        int right = abstractFind(toElement, toInclusive ? 0 : -1, -1) + 1;
+        return Math.max(0, right - left);
+    }
+
+    public int countInRange(T fromElement, T toElement) {
+        return countInRange(fromElement, true, toElement, false);
+    }
+
+    /**
+     * Returns an unmodifiable random access list view of the elements in iteration order.
+     */
+    public List<T> asList() {
+        return Collections.unmodifiableList(data);
+    }
+
     @Override
     public T lower(T t) {
         return findLower(t, false);
@@ -92,6 +360,64 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return data.iterator();
     }
 
+    @Override
+    public Spliterator<T> spliterator() {
+        return new IndexSpliterator<>(data, 0, size(), comparator);
+    }
+
+    private static class IndexSpliterator<T> implements Spliterator<T> {
+        private final List<T> data;
+        private final Comparator<? super T> comparator;
+        private int index;
+        private final int fence;
+
+        IndexSpliterator(List<T> data, int index, int fence, Comparator<? super T> comparator) {
+            this.data = data;
+            this.index = index;
+            this.fence = fence;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(data.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            for (; index < fence; ++index) {
+                action.accept(data.get(index));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            return index < mid ? new IndexSpliterator<>(data, index, index = mid, comparator) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
+    }
+
     @Override
     public void forEach(Consumer<? super T> action) {
         data.forEach(action);
@@ -108,7 +434,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     @Override
-    public NavigableSet<T> descendingSet() {
+    public ArraySet<T> descendingSet() {
         return new ArraySet<>(new ReversedList<>(data), Collections.reverseOrder(comparator));
     }
 
@@ -118,7 +444,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     @SuppressWarnings("unchecked")
-    private void checkOnException(T fromElement, T toElement) throws IllegalArgumentException {
+    void checkOnException(T fromElement, T toElement) throws IllegalArgumentException {
         final var message = "Left bound should not be greater than right";
         if (comparator != null) {
             if (comparator.compare(fromElement, toElement) > 0) {
@@ -136,6 +462,10 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
             checkOnException(fromElement, toElement);
         int left = abstractFind(fromElement, fromInclusive ? 0 : 1, 0);
         int right = abstractFind(toElement, toInclusive ? 0 : -1, -1) + 1;
+        return range(left, right);
+    }
+
+    ArraySet<T> range(int left, int right) {
         return new ArraySet<>((right <= left ? Collections.emptyList() : data.subList(left, right)), comparator);
     }
 
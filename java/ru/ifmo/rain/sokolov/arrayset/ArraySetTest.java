@@ -0,0 +1,125 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+public class ArraySetTest {
+    private final Random random = new Random(2019);
+
+    private List<Integer> randomList(int size, int bound) {
+        return random.ints(size, 0, bound).boxed().collect(Collectors.toList());
+    }
+
+    private static void assertNavigation(NavigableSet<Integer> expected, NavigableSet<Integer> actual, int key) {
+        assertEquals("contains " + key, expected.contains(key), actual.contains(key));
+        assertEquals("lower " + key, expected.lower(key), actual.lower(key));
+        assertEquals("floor " + key, expected.floor(key), actual.floor(key));
+        assertEquals("ceiling " + key, expected.ceiling(key), actual.ceiling(key));
+        assertEquals("higher " + key, expected.higher(key), actual.higher(key));
+        assertEquals("headSet " + key, new ArrayList<>(expected.headSet(key, true)),
+                new ArrayList<>(actual.headSet(key, true)));
+        assertEquals("tailSet " + key, new ArrayList<>(expected.tailSet(key, false)),
+                new ArrayList<>(actual.tailSet(key, false)));
+    }
+
+    @Test
+    public void navigation() {
+        for (int size : new int[]{0, 1, 2, 3, 7, 100, 1000}) {
+            var list = randomList(size, 2 * size + 1);
+            var expected = new TreeSet<>(list);
+            var set = new ArraySet<>(list);
+            var indexed = set.withSearchIndex();
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+            assertEquals(set, indexed);
+            for (int key = -1; key <= 2 * size + 1; ++key) {
+                assertNavigation(expected, set, key);
+                assertNavigation(expected, indexed, key);
+                assertNavigation(expected.descendingSet(), indexed.descendingSet(), key);
+            }
+        }
+    }
+
+    @Test
+    public void searchIndexWithComparator() {
+        var list = randomList(500, 1000);
+        var expected = new TreeSet<Integer>(Comparator.reverseOrder());
+        expected.addAll(list);
+        var set = new ArraySet<>(list, Comparator.<Integer>reverseOrder()).withSearchIndex();
+        for (int key = -1; key <= 1000; ++key) {
+            assertNavigation(expected, set, key);
+        }
+    }
+
+    @Test
+    public void keepsFirstOfEqualElements() {
+        var set = new ArraySet<>(List.of("b", "A", "a", "B"), String.CASE_INSENSITIVE_ORDER);
+        assertEquals(List.of("A", "b"), new ArrayList<>(set));
+    }
+
+    @Test
+    public void setAlgebra() {
+        for (int[] sizes : new int[][]{{0, 10}, {10, 0}, {100, 100}, {10, 5000}, {5000, 10}, {100000, 100000}}) {
+            var a = new TreeSet<>(randomList(sizes[0], 3 * Math.max(sizes[0], sizes[1])));
+            var b = new TreeSet<>(randomList(sizes[1], 3 * Math.max(sizes[0], sizes[1])));
+            var setA = new ArraySet<>(a);
+            var setB = new ArraySet<>(b);
+
+            var union = new TreeSet<>(a);
+            union.addAll(b);
+            var intersection = new TreeSet<>(a);
+            intersection.retainAll(b);
+            var difference = new TreeSet<>(a);
+            difference.removeAll(b);
+
+            assertEquals(new ArrayList<>(union), new ArrayList<>(ArraySet.union(setA, setB)));
+            assertEquals(new ArrayList<>(intersection), new ArrayList<>(ArraySet.intersection(setA, setB)));
+            assertEquals(new ArrayList<>(difference), new ArrayList<>(ArraySet.difference(setA, setB)));
+        }
+    }
+
+    @Test
+    public void rankAndSelect() {
+        var list = randomList(1000, 5000);
+        var expected = new ArrayList<>(new TreeSet<>(list));
+        var set = new ArraySet<>(list);
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i), set.select(i));
+            assertEquals(i, set.rank(expected.get(i)));
+        }
+        for (int key = -1; key <= 5000; key += 7) {
+            assertEquals(set.headSet(key).size(), set.rank(key));
+            int to = key + random.nextInt(100);
+            assertEquals(set.subSet(key, to).size(), set.countInRange(key, to));
+            assertEquals(set.subSet(key, false, to, true).size(), set.countInRange(key, false, to, true));
+        }
+        assertEquals(expected, set.asList());
+        assertEquals(List.of(3, 2, 1), new ArraySet<>(List.of(1, 2, 3)).descendingSet().asList());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void selectOutOfRange() {
+        new ArraySet<>(List.of(1, 2, 3)).select(3);
+    }
+
+    @Test
+    public void spliterator() {
+        var list = randomList(100000, 1000000);
+        var expected = new ArrayList<>(new TreeSet<>(list));
+        var set = new ArraySet<>(list);
+        var spliterator = set.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.SIZED));
+        assertEquals(expected.size(), spliterator.getExactSizeIfKnown());
+        assertEquals(expected, StreamSupport.stream(set.spliterator(), true).collect(Collectors.toList()));
+        assertEquals(expected, StreamSupport.stream(set.subSet(0, 1000000).spliterator(), true)
+                .collect(Collectors.toList()));
+
+        var descending = new ArrayList<>(expected);
+        Collections.reverse(descending);
+        assertEquals(descending, set.descendingSet().stream().parallel().collect(Collectors.toList()));
+    }
+}
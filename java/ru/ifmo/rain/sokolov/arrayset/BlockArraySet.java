@@ -0,0 +1,691 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+public class BlockArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+
+    private static final int BLOCK_SIZE = 512;
+
+    private final Comparator<? super T> comparator;
+    private final List<Block> blocks = new ArrayList<>();
+    private int size = 0;
+    private int modCount = 0;
+
+    private static class Block {
+        final Object[] items = new Object[BLOCK_SIZE];
+        int size;
+
+        Object last() {
+            return items[size - 1];
+        }
+    }
+
+    public BlockArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    public BlockArraySet(Collection<? extends T> data) {
+        this(data, null);
+    }
+
+    public BlockArraySet(Comparator<? super T> cmp) {
+        this(Collections.emptyList(), cmp);
+    }
+
+    public BlockArraySet(Collection<? extends T> data, Comparator<? super T> cmp) {
+        this.comparator = cmp;
+        var sorted = new ArraySet<T>(data, cmp).toArray();
+        for (int i = 0; i < sorted.length; i += BLOCK_SIZE / 2) {
+            var block = new Block();
+            block.size = Math.min(BLOCK_SIZE / 2, sorted.length - i);
+            System.arraycopy(sorted, i, block.items, 0, block.size);
+            blocks.add(block);
+        }
+        size = sorted.length;
+    }
+
+    /**
+     * Returns an immutable copy of this set that shares no state with it.
+     */
+    @SuppressWarnings("unchecked")
+    public ArraySet<T> freeze() {
+        var array = new Object[size];
+        int copied = 0;
+        for (var block : blocks) {
+            System.arraycopy(block.items, 0, array, copied, block.size);
+            copied += block.size;
+        }
+        return ArraySet.ofSorted((List<T>) Collections.unmodifiableList(Arrays.asList(array)), comparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator != null
+                ? ((Comparator<Object>) comparator).compare(a, b)
+                : ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static long position(int block, int index) {
+        return (long) block << 32 | index;
+    }
+
+    private static int block(long position) {
+        return (int) (position >> 32);
+    }
+
+    private static int index(long position) {
+        return (int) position;
+    }
+
+    private long end() {
+        return position(blocks.size(), 0);
+    }
+
+    private boolean after(Object element, Object o, boolean strict) {
+        int c = compare(element, o);
+        return strict ? c > 0 : c >= 0;
+    }
+
+    private long find(Object o, boolean strict) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (after(blocks.get(mid).last(), o, strict)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        if (low == blocks.size()) {
+            return end();
+        }
+        var block = blocks.get(low);
+        int from = 0;
+        int to = block.size - 1;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (after(block.items[mid], o, strict)) {
+                to = mid;
+            } else {
+                from = mid + 1;
+            }
+        }
+        return position(low, from);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T at(long position) {
+        int b = block(position);
+        return b >= 0 && b < blocks.size() && index(position) < blocks.get(b).size
+                ? (T) blocks.get(b).items[index(position)]
+                : null;
+    }
+
+    private long successor(long position) {
+        int b = block(position);
+        int i = index(position) + 1;
+        return i < blocks.get(b).size ? position(b, i) : position(b + 1, 0);
+    }
+
+    private long previous(long position) {
+        int b = block(position);
+        int i = index(position);
+        if (i > 0) {
+            return position(b, i - 1);
+        }
+        return b > 0 ? position(b - 1, blocks.get(b - 1).size - 1) : -1;
+    }
+
+    private int rank(long position) {
+        int rank = 0;
+        for (int b = 0; b < block(position); ++b) {
+            rank += blocks.get(b).size;
+        }
+        return rank + index(position);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        var element = at(find(o, false));
+        return element != null && compare(element, o) == 0;
+    }
+
+    @Override
+    public boolean add(T t) {
+        Objects.requireNonNull(t);
+        long position = find(t, false);
+        int b = block(position);
+        int i = index(position);
+        if (b < blocks.size() && compare(blocks.get(b).items[i], t) == 0) {
+            return false;
+        }
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+        } else if (b == blocks.size()) {
+            i = blocks.get(--b).size;
+        }
+        var block = blocks.get(b);
+        if (block.size == BLOCK_SIZE) {
+            int half = BLOCK_SIZE / 2;
+            var right = new Block();
+            right.size = BLOCK_SIZE - half;
+            System.arraycopy(block.items, half, right.items, 0, right.size);
+            Arrays.fill(block.items, half, BLOCK_SIZE, null);
+            block.size = half;
+            blocks.add(b + 1, right);
+            if (i > half) {
+                block = right;
+                i -= half;
+            }
+        }
+        System.arraycopy(block.items, i, block.items, i + 1, block.size - i);
+        block.items[i] = t;
+        block.size++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        long position = find(o, false);
+        var element = at(position);
+        if (element == null || compare(element, o) != 0) {
+            return false;
+        }
+        removeAt(block(position), index(position));
+        return true;
+    }
+
+    private void removeAt(int b, int i) {
+        var block = blocks.get(b);
+        System.arraycopy(block.items, i + 1, block.items, i, block.size - i - 1);
+        block.items[--block.size] = null;
+        size--;
+        modCount++;
+        if (block.size == 0) {
+            blocks.remove(b);
+        } else if (!merge(b)) {
+            merge(b - 1);
+        }
+    }
+
+    private boolean merge(int left) {
+        if (left < 0 || left + 1 >= blocks.size()) {
+            return false;
+        }
+        var block = blocks.get(left);
+        var right = blocks.get(left + 1);
+        if (block.size + right.size > BLOCK_SIZE / 2) {
+            return false;
+        }
+        System.arraycopy(right.items, 0, block.items, block.size, right.size);
+        block.size += right.size;
+        blocks.remove(left + 1);
+        return true;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter);
+        // Each block is tested before it is compacted, so a throwing filter leaves the set consistent
+        var removes = new boolean[BLOCK_SIZE];
+        boolean changed = false;
+        try {
+            for (var block : blocks) {
+                int removed = 0;
+                for (int i = 0; i < block.size; ++i) {
+                    @SuppressWarnings("unchecked")
+                    var element = (T) block.items[i];
+                    removes[i] = filter.test(element);
+                    if (removes[i]) {
+                        removed++;
+                    }
+                }
+                if (removed == 0) {
+                    continue;
+                }
+                int kept = 0;
+                for (int i = 0; i < block.size; ++i) {
+                    if (!removes[i]) {
+                        block.items[kept++] = block.items[i];
+                    }
+                }
+                Arrays.fill(block.items, kept, block.size, null);
+                block.size = kept;
+                size -= removed;
+                modCount++;
+                changed = true;
+            }
+        } finally {
+            if (changed) {
+                coalesce();
+            }
+        }
+        return changed;
+    }
+
+    private void coalesce() {
+        int count = 0;
+        for (int i = 0; i < blocks.size(); ++i) {
+            var block = blocks.get(i);
+            if (block.size == 0) {
+                continue;
+            }
+            var previous = count > 0 ? blocks.get(count - 1) : null;
+            if (previous != null && previous.size + block.size <= BLOCK_SIZE / 2) {
+                System.arraycopy(block.items, 0, previous.items, previous.size, block.size);
+                previous.size += block.size;
+            } else {
+                blocks.set(count++, block);
+            }
+        }
+        blocks.subList(count, blocks.size()).clear();
+    }
+
+    int blockCount() {
+        return blocks.size();
+    }
+
+    @Override
+    public void clear() {
+        blocks.clear();
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public T lower(T t) {
+        return at(previous(find(t, false)));
+    }
+
+    @Override
+    public T floor(T t) {
+        return at(previous(find(t, true)));
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return at(find(t, false));
+    }
+
+    @Override
+    public T higher(T t) {
+        return at(find(t, true));
+    }
+
+    @Override
+    public T pollFirst() {
+        var first = at(0);
+        if (first != null) {
+            removeAt(0, 0);
+        }
+        return first;
+    }
+
+    @Override
+    public T pollLast() {
+        var last = at(previous(end()));
+        if (last != null) {
+            removeAt(blocks.size() - 1, blocks.get(blocks.size() - 1).size - 1);
+        }
+        return last;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr(null, false, 0);
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new View(null, false, null, false, true);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new Itr(null, true, previous(end()));
+    }
+
+    private void checkOnException(T fromElement, T toElement) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("Left bound should not be greater than right");
+        }
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        checkOnException(fromElement, toElement);
+        return new View(fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new View(null, false, Objects.requireNonNull(toElement), inclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new View(Objects.requireNonNull(fromElement), inclusive, null, false, false);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    private static <T> T checkExists(T element) {
+        if (element == null) {
+            throw new NoSuchElementException("Try to access not exist element");
+        }
+        return element;
+    }
+
+    @Override
+    public T first() {
+        return checkExists(at(0));
+    }
+
+    @Override
+    public T last() {
+        return checkExists(at(previous(end())));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private class Itr implements Iterator<T> {
+        private final View view;
+        private final boolean descending;
+        private long cursor;
+        private T last;
+        private int expectedModCount = modCount;
+
+        Itr(View view, boolean descending, long cursor) {
+            this.view = view;
+            this.descending = descending;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            var next = at(cursor);
+            return next != null && (view == null || (descending ? !view.tooLow(next) : !view.tooHigh(next)));
+        }
+
+        @Override
+        public T next() {
+            checkModification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = at(cursor);
+            cursor = descending ? previous(cursor) : successor(cursor);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            checkModification();
+            BlockArraySet.this.remove(last);
+            cursor = descending ? previous(find(last, false)) : find(last, true);
+            last = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private class View extends AbstractSet<T> implements NavigableSet<T> {
+        private final T low;
+        private final boolean lowInclusive;
+        private final T high;
+        private final boolean highInclusive;
+        private final boolean descending;
+
+        View(T low, boolean lowInclusive, T high, boolean highInclusive, boolean descending) {
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.descending = descending;
+        }
+
+        boolean tooLow(Object o) {
+            if (low == null) {
+                return false;
+            }
+            int c = compare(o, low);
+            return c < 0 || c == 0 && !lowInclusive;
+        }
+
+        boolean tooHigh(Object o) {
+            if (high == null) {
+                return false;
+            }
+            int c = compare(o, high);
+            return c > 0 || c == 0 && !highInclusive;
+        }
+
+        private boolean inRange(Object o) {
+            return !tooLow(o) && !tooHigh(o);
+        }
+
+        private boolean inRange(T t, boolean inclusive) {
+            return inclusive
+                    ? inRange(t)
+                    : (low == null || compare(t, low) >= 0) && (high == null || compare(t, high) <= 0);
+        }
+
+        private long lowestPosition() {
+            return low == null ? 0 : find(low, !lowInclusive);
+        }
+
+        private long highestPosition() {
+            return previous(high == null ? end() : find(high, highInclusive));
+        }
+
+        private T lowest() {
+            var element = at(lowestPosition());
+            return element != null && !tooHigh(element) ? element : null;
+        }
+
+        private T highest() {
+            var element = at(highestPosition());
+            return element != null && !tooLow(element) ? element : null;
+        }
+
+        private T belowHigh(T element) {
+            return element != null && !tooHigh(element) ? element : null;
+        }
+
+        private T aboveLow(T element) {
+            return element != null && !tooLow(element) ? element : null;
+        }
+
+        private T ascendingCeiling(T t) {
+            return tooLow(t) ? lowest() : belowHigh(BlockArraySet.this.ceiling(t));
+        }
+
+        private T ascendingHigher(T t) {
+            return tooLow(t) ? lowest() : belowHigh(BlockArraySet.this.higher(t));
+        }
+
+        private T ascendingFloor(T t) {
+            return tooHigh(t) ? highest() : aboveLow(BlockArraySet.this.floor(t));
+        }
+
+        private T ascendingLower(T t) {
+            return tooHigh(t) ? highest() : aboveLow(BlockArraySet.this.lower(t));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return inRange(o) && BlockArraySet.this.contains(o);
+        }
+
+        @Override
+        public boolean add(T t) {
+            if (!inRange(t)) {
+                throw new IllegalArgumentException("Element out of range");
+            }
+            return BlockArraySet.this.add(t);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return inRange(o) && BlockArraySet.this.remove(o);
+        }
+
+        @Override
+        public T lower(T t) {
+            return descending ? ascendingHigher(t) : ascendingLower(t);
+        }
+
+        @Override
+        public T floor(T t) {
+            return descending ? ascendingCeiling(t) : ascendingFloor(t);
+        }
+
+        @Override
+        public T ceiling(T t) {
+            return descending ? ascendingFloor(t) : ascendingCeiling(t);
+        }
+
+        @Override
+        public T higher(T t) {
+            return descending ? ascendingLower(t) : ascendingHigher(t);
+        }
+
+        @Override
+        public T pollFirst() {
+            var first = descending ? highest() : lowest();
+            if (first != null) {
+                BlockArraySet.this.remove(first);
+            }
+            return first;
+        }
+
+        @Override
+        public T pollLast() {
+            var last = descending ? lowest() : highest();
+            if (last != null) {
+                BlockArraySet.this.remove(last);
+            }
+            return last;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return descending ? new Itr(this, true, highestPosition()) : new Itr(this, false, lowestPosition());
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new View(low, lowInclusive, high, highInclusive, !descending);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        private NavigableSet<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+            if (from != null && !inRange(from, fromInclusive) || to != null && !inRange(to, toInclusive)) {
+                throw new IllegalArgumentException("Bound out of range");
+            }
+            return new View(from == null ? low : from, from == null ? lowInclusive : fromInclusive,
+                    to == null ? high : to, to == null ? highInclusive : toInclusive, descending);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (descending) {
+                checkOnException(toElement, fromElement);
+                return range(toElement, toInclusive, fromElement, fromInclusive);
+            }
+            checkOnException(fromElement, toElement);
+            return range(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            Objects.requireNonNull(toElement);
+            return descending ? range(toElement, inclusive, null, false) : range(null, false, toElement, inclusive);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            Objects.requireNonNull(fromElement);
+            return descending ? range(null, false, fromElement, inclusive) : range(fromElement, inclusive, null, false);
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return descending ? Collections.reverseOrder(comparator) : comparator;
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public T first() {
+            return checkExists(descending ? highest() : lowest());
+        }
+
+        @Override
+        public T last() {
+            return checkExists(descending ? lowest() : highest());
+        }
+
+        @Override
+        public int size() {
+            long from = lowestPosition();
+            long to = high == null ? end() : find(high, highInclusive);
+            return Math.max(0, rank(to) - rank(from));
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class BlockArraySetTest {
+    private final Random random = new Random(2019);
+
+    @Test
+    public void matchesTreeSet() {
+        var expected = new TreeSet<Integer>();
+        var set = new BlockArraySet<Integer>();
+        for (int i = 0; i < 100000; ++i) {
+            int key = random.nextInt(5000);
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    assertEquals(expected.add(key), set.add(key));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), set.remove(key));
+                    break;
+                case 3:
+                    assertEquals(expected.floor(key), set.floor(key));
+                    assertEquals(expected.higher(key), set.higher(key));
+                    break;
+                case 4:
+                    assertEquals(expected.headSet(key).size(), set.headSet(key).size());
+                    assertEquals(expected.descendingSet().tailSet(key, true).size(),
+                            set.descendingSet().tailSet(key, true).size());
+                    break;
+                default:
+                    assertEquals(expected.contains(key), set.contains(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        assertEquals(new ArrayList<>(expected.descendingSet()), new ArrayList<>(set.descendingSet()));
+    }
+
+    @Test
+    public void iteratorRemove() {
+        var set = new BlockArraySet<>(IntStream.range(0, 3000).boxed().collect(Collectors.toList()));
+        for (var it = set.iterator(); it.hasNext(); ) {
+            if (it.next() % 3 != 0) {
+                it.remove();
+            }
+        }
+        assertEquals(IntStream.range(0, 1000).map(i -> 3 * i).boxed().collect(Collectors.toList()),
+                new ArrayList<>(set));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void failFast() {
+        var set = new BlockArraySet<>(List.of(1, 2, 3));
+        for (var value : set) {
+            set.add(value + 10);
+        }
+    }
+
+    @Test
+    public void removeIfMergesSmallBlocks() {
+        var set = new BlockArraySet<>(IntStream.range(0, 100000).boxed().collect(Collectors.toList()));
+        assertTrue(set.removeIf(value -> value % 100 != 0));
+        assertEquals(1000, set.size());
+        assertEquals(IntStream.range(0, 1000).map(i -> 100 * i).boxed().collect(Collectors.toList()),
+                new ArrayList<>(set));
+        // No two neighbour blocks fit into one half-full block, as after single removals
+        int fresh = new BlockArraySet<>(set).blockCount();
+        assertTrue(set.blockCount() + " blocks", set.blockCount() <= 2 * fresh + 1);
+        assertFalse(set.removeIf(value -> value < 0));
+    }
+
+    @Test
+    public void removeIfWithThrowingFilter() {
+        var set = new BlockArraySet<>(IntStream.range(0, 10000).boxed().collect(Collectors.toList()));
+        try {
+            set.removeIf(value -> {
+                if (value == 5000) {
+                    throw new IllegalStateException();
+                }
+                return value % 2 == 1;
+            });
+            fail("Filter exception is not propagated");
+        } catch (IllegalStateException ignored) {
+        }
+        var elements = new ArrayList<>(set);
+        var distinct = new TreeSet<>(elements);
+        assertEquals(new ArrayList<>(distinct), elements);
+        assertEquals(elements.size(), set.size());
+        for (int value = -1; value <= 10000; ++value) {
+            assertEquals(distinct.contains(value), set.contains(value));
+            if (value >= 0 && value < 10000 && (value % 2 == 0 || value >= 5000)) {
+                assertTrue(set.contains(value));
+            }
+        }
+    }
+
+    @Test
+    public void freeze() {
+        var set = new BlockArraySet<>(List.of(3, 1, 2));
+        var frozen = set.freeze();
+        set.add(0);
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(frozen));
+        assertEquals(List.of(0, 1, 2, 3), new ArrayList<>(set));
+    }
+}
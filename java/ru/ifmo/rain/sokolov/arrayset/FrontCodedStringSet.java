@@ -0,0 +1,436 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Immutable set of strings stored as UTF-8 in front-coded blocks: the first string of every block is kept
+ * in full, the others as the length of the prefix shared with the previous string plus the remaining bytes.
+ * Strings are ordered by code points, which is the order of their UTF-8 bytes.
+ */
+public class FrontCodedStringSet extends AbstractSet<String> implements NavigableSet<String> {
+
+    public static final Comparator<String> CODE_POINT_ORDER = FrontCodedStringSet::compareCodePoints;
+    private static final int BLOCK_SIZE = 16;
+
+    private final Storage storage;
+    private final int from;
+    private final int to;
+    private final boolean reversed;
+
+    public FrontCodedStringSet() {
+        this(Collections.emptyList());
+    }
+
+    public FrontCodedStringSet(Collection<String> strings) {
+        this(new Storage(new ArraySet<>(strings, CODE_POINT_ORDER)));
+    }
+
+    private FrontCodedStringSet(Storage storage) {
+        this(storage, 0, storage.count, false);
+    }
+
+    private FrontCodedStringSet(Storage storage, int from, int to, boolean reversed) {
+        this.storage = storage;
+        this.from = from;
+        this.to = to;
+        this.reversed = reversed;
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; ++i) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                return codePointOrder(x) - codePointOrder(y);
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static int codePointOrder(char c) {
+        return c < 0xd800 ? c : c < 0xe000 ? c + 0x2000 : c - 0x800;
+    }
+
+    private static class Storage {
+        final byte[] bytes;
+        final int[] blocks;
+        final int count;
+        final int maxLength;
+
+        Storage(Collection<String> sorted) {
+            var encoder = StandardCharsets.UTF_8.newEncoder();
+            var out = new ByteArrayOutputStream();
+            blocks = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            byte[] previous = new byte[0];
+            int index = 0;
+            int longest = 0;
+            for (var string : sorted) {
+                var current = encode(encoder, string);
+                if (index % BLOCK_SIZE == 0) {
+                    blocks[index / BLOCK_SIZE] = out.size();
+                    writeVarInt(out, current.length);
+                    out.write(current, 0, current.length);
+                } else {
+                    int shared = Arrays.mismatch(previous, current);
+                    writeVarInt(out, shared);
+                    writeVarInt(out, current.length - shared);
+                    out.write(current, shared, current.length - shared);
+                }
+                longest = Math.max(longest, current.length);
+                previous = current;
+                index++;
+            }
+            bytes = out.toByteArray();
+            count = index;
+            maxLength = longest;
+        }
+
+        private static byte[] encode(CharsetEncoder encoder, String string) {
+            try {
+                var buffer = encoder.encode(CharBuffer.wrap(string));
+                return Arrays.copyOf(buffer.array(), buffer.limit());
+            } catch (CharacterCodingException e) {
+                throw new IllegalArgumentException("Not a valid Unicode string: " + string);
+            }
+        }
+
+        private static void writeVarInt(ByteArrayOutputStream out, int value) {
+            while ((value & ~0x7f) != 0) {
+                out.write(value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        private int compareFirst(int block, byte[] key) {
+            int position = blocks[block];
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                length |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            return Arrays.compareUnsigned(bytes, position, position + length, key, 0, key.length);
+        }
+
+        /**
+         * Returns the index of the key, or {@code ~index} of the first greater string as
+         * {@link Arrays#binarySearch} does.
+         */
+        int find(byte[] key) {
+            int low = 0;
+            int high = blocks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareFirst(mid, key) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == 0) {
+                return ~0;
+            }
+            int end = Math.min(count, low * BLOCK_SIZE);
+            var cursor = new Cursor(this);
+            for (cursor.seek((low - 1) * BLOCK_SIZE); cursor.index < end; cursor.next()) {
+                int c = cursor.compareTo(key);
+                if (c >= 0) {
+                    return c == 0 ? cursor.index : ~cursor.index;
+                }
+            }
+            return ~end;
+        }
+
+        String get(int index) {
+            var cursor = new Cursor(this);
+            cursor.seek(index);
+            return cursor.current();
+        }
+    }
+
+    private static class Cursor {
+        private final Storage storage;
+        private final byte[] buffer;
+        private int position;
+        private int length;
+        int index;
+
+        Cursor(Storage storage) {
+            this.storage = storage;
+            this.buffer = new byte[storage.maxLength];
+        }
+
+        void seek(int target) {
+            index = target - target % BLOCK_SIZE;
+            position = storage.blocks[index / BLOCK_SIZE];
+            read();
+            while (index < target) {
+                next();
+            }
+        }
+
+        void next() {
+            if (++index < storage.count) {
+                read();
+            }
+        }
+
+        private void read() {
+            int shared = index % BLOCK_SIZE == 0 ? 0 : readVarInt();
+            int suffix = readVarInt();
+            System.arraycopy(storage.bytes, position, buffer, shared, suffix);
+            position += suffix;
+            length = shared + suffix;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = storage.bytes[position++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        int compareTo(byte[] key) {
+            return Arrays.compareUnsigned(buffer, 0, length, key, 0, key.length);
+        }
+
+        String current() {
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private int find(String string) {
+        for (int i = 0; i < string.length(); ++i) {
+            char c = string.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                ++i;
+            } else if (Character.isSurrogate(c)) {
+                return findUnpaired(string, i);
+            }
+        }
+        return storage.find(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Strings with unpaired surrogates are never stored. In code point order such a string goes right before
+     * the first code point starting with its high surrogate, or after every continuation of its prefix
+     * if the surrogate is a low one.
+     */
+    private int findUnpaired(String string, int index) {
+        var prefix = string.substring(0, index).getBytes(StandardCharsets.UTF_8);
+        char c = string.charAt(index);
+        var bound = Character.isHighSurrogate(c)
+                ? new String(new char[]{c, Character.MIN_LOW_SURROGATE}).getBytes(StandardCharsets.UTF_8)
+                : new byte[]{(byte) 0xff};
+        var key = Arrays.copyOf(prefix, prefix.length + bound.length);
+        System.arraycopy(bound, 0, key, prefix.length, bound.length);
+        int pos = storage.find(key);
+        return pos >= 0 ? ~pos : pos;
+    }
+
+    private int ascendingFrom(String string, boolean inclusive) {
+        int pos = find(string);
+        return Math.min(Math.max(pos >= 0 ? (inclusive ? pos : pos + 1) : ~pos, from), to);
+    }
+
+    private int ascendingTo(String string, boolean inclusive) {
+        int pos = find(string);
+        return Math.min(Math.max(pos >= 0 ? (inclusive ? pos + 1 : pos) : ~pos, from), to);
+    }
+
+    private String element(int pos) {
+        return pos < from || pos >= to ? null : storage.get(pos);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int pos = find((String) o);
+        return pos >= from && pos < to;
+    }
+
+    @Override
+    public String lower(String s) {
+        return element(reversed ? ascendingFrom(s, false) : ascendingTo(s, false) - 1);
+    }
+
+    @Override
+    public String floor(String s) {
+        return element(reversed ? ascendingFrom(s, true) : ascendingTo(s, true) - 1);
+    }
+
+    @Override
+    public String ceiling(String s) {
+        return element(reversed ? ascendingTo(s, true) - 1 : ascendingFrom(s, true));
+    }
+
+    @Override
+    public String higher(String s) {
+        return element(reversed ? ascendingTo(s, false) - 1 : ascendingFrom(s, false));
+    }
+
+    @Override
+    public String pollFirst() {
+        throw new UnsupportedOperationException("Error: pollFirst is unsupported");
+    }
+
+    @Override
+    public String pollLast() {
+        throw new UnsupportedOperationException("Error: pollLast is unsupported");
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return reversed ? descending() : ascending();
+    }
+
+    private Iterator<String> ascending() {
+        return new Iterator<>() {
+            private Cursor cursor;
+
+            @Override
+            public boolean hasNext() {
+                return (cursor == null ? from : cursor.index) < to;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (cursor == null) {
+                    cursor = new Cursor(storage);
+                    cursor.seek(from);
+                }
+                var result = cursor.current();
+                cursor.next();
+                return result;
+            }
+        };
+    }
+
+    private Iterator<String> descending() {
+        return new Iterator<>() {
+            private final Cursor cursor = new Cursor(storage);
+            private final String[] block = new String[BLOCK_SIZE];
+            private int next = to - 1;
+            private int decoded = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= from;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int start = next - next % BLOCK_SIZE;
+                if (decoded != start) {
+                    for (cursor.seek(Math.max(start, from)); cursor.index <= next; cursor.next()) {
+                        block[cursor.index - start] = cursor.current();
+                    }
+                    decoded = start;
+                }
+                return block[next-- - start];
+            }
+        };
+    }
+
+    @Override
+    public FrontCodedStringSet descendingSet() {
+        return new FrontCodedStringSet(storage, from, to, !reversed);
+    }
+
+    @Override
+    public Iterator<String> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private FrontCodedStringSet range(int left, int right) {
+        return new FrontCodedStringSet(storage, left, Math.max(left, right), reversed);
+    }
+
+    @Override
+    public FrontCodedStringSet subSet(String fromElement, boolean fromInclusive,
+                                      String toElement, boolean toInclusive) {
+        if (comparator().compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("Left bound should not be greater than right");
+        }
+        return reversed
+                ? range(ascendingFrom(toElement, toInclusive), ascendingTo(fromElement, fromInclusive))
+                : range(ascendingFrom(fromElement, fromInclusive), ascendingTo(toElement, toInclusive));
+    }
+
+    @Override
+    public FrontCodedStringSet headSet(String toElement, boolean inclusive) {
+        return reversed
+                ? range(ascendingFrom(toElement, inclusive), to)
+                : range(from, ascendingTo(toElement, inclusive));
+    }
+
+    @Override
+    public FrontCodedStringSet tailSet(String fromElement, boolean inclusive) {
+        return reversed
+                ? range(from, ascendingTo(fromElement, inclusive))
+                : range(ascendingFrom(fromElement, inclusive), to);
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        return reversed ? Collections.reverseOrder(CODE_POINT_ORDER) : CODE_POINT_ORDER;
+    }
+
+    @Override
+    public SortedSet<String> subSet(String fromElement, String toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> headSet(String toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> tailSet(String fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    private void emptyCheck() {
+        if (isEmpty()) throw new NoSuchElementException("Try to access not exist element");
+    }
+
+    @Override
+    public String first() {
+        emptyCheck();
+        return storage.get(reversed ? to - 1 : from);
+    }
+
+    @Override
+    public String last() {
+        emptyCheck();
+        return storage.get(reversed ? from : to - 1);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+}
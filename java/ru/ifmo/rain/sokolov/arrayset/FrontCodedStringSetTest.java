@@ -0,0 +1,62 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FrontCodedStringSetTest {
+    private static final String[] VALID = {"", "a", "b", "?", "\u00e9", "\uffff", "\ud83d\ude00", "\ud800\udc00"};
+    private static final String[] KEYS = {"", "a", "?", "\uffff", "\ud83d\ude00", "\ud800", "\udc00", "\udbff", "x"};
+
+    private final Random random = new Random(2019);
+
+    private String randomString(String[] alphabet) {
+        var sb = new StringBuilder();
+        for (int i = random.nextInt(5); i > 0; --i) {
+            sb.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void matchesTreeSet() {
+        for (int test = 0; test < 300; ++test) {
+            var expected = new TreeSet<>(FrontCodedStringSet.CODE_POINT_ORDER);
+            for (int i = random.nextInt(100); i > 0; --i) {
+                expected.add(randomString(VALID));
+            }
+            NavigableSet<String> actual = new FrontCodedStringSet(expected);
+            NavigableSet<String> reference = expected;
+            if (test % 2 == 1) {
+                actual = actual.descendingSet();
+                reference = reference.descendingSet();
+            }
+            assertEquals(new ArrayList<>(reference), new ArrayList<>(actual));
+            for (int i = 0; i < 50; ++i) {
+                var key = randomString(KEYS);
+                assertEquals(reference.contains(key), actual.contains(key));
+                assertEquals(reference.lower(key), actual.lower(key));
+                assertEquals(reference.floor(key), actual.floor(key));
+                assertEquals(reference.ceiling(key), actual.ceiling(key));
+                assertEquals(reference.higher(key), actual.higher(key));
+                assertEquals(new ArrayList<>(reference.tailSet(key, true)), new ArrayList<>(actual.tailSet(key, true)));
+            }
+        }
+    }
+
+    @Test
+    public void unpairedSurrogatesAreAbsent() {
+        var set = new FrontCodedStringSet(List.of("?", "a"));
+        assertFalse(set.contains("\ud800"));
+        assertEquals("a", set.floor("\ud800x"));
+        assertNull(set.ceiling("\udc00"));
+        assertEquals(2, set.headSet("\ud800").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnpairedSurrogates() {
+        new FrontCodedStringSet(List.of("a", "\ud800"));
+    }
+}
@@ -0,0 +1,268 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import java.util.*;
+
+public class IntArraySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+    private final int[] data;
+    private final int from;
+    private final int to;
+    private final boolean reversed;
+
+    public IntArraySet() {
+        this(new int[0], 0, 0, false);
+    }
+
+    public IntArraySet(int... values) {
+        this(sorted(values.clone()), false);
+    }
+
+    public IntArraySet(Collection<Integer> values) {
+        this(sorted(toArray(values)), false);
+    }
+
+    private IntArraySet(int[] data, boolean reversed) {
+        this(data, 0, data.length, reversed);
+    }
+
+    private IntArraySet(int[] data, int from, int to, boolean reversed) {
+        this.data = data;
+        this.from = from;
+        this.to = to;
+        this.reversed = reversed;
+    }
+
+    private static int[] toArray(Collection<Integer> values) {
+        var result = new int[values.size()];
+        int size = 0;
+        for (var value : values) {
+            result[size++] = value;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static int[] sorted(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; ++i) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private int find(int value) {
+        return Arrays.binarySearch(data, from, to, value);
+    }
+
+    private int ascendingFrom(int value, boolean inclusive) {
+        int pos = find(value);
+        return pos >= 0 ? (inclusive ? pos : pos + 1) : ~pos;
+    }
+
+    private int ascendingTo(int value, boolean inclusive) {
+        int pos = find(value);
+        return pos >= 0 ? (inclusive ? pos + 1 : pos) : ~pos;
+    }
+
+    private int index(int pos) {
+        return pos < from || pos >= to ? -1 : reversed ? to - 1 - pos : pos - from;
+    }
+
+    public boolean containsInt(int value) {
+        return find(value) >= 0;
+    }
+
+    public int getInt(int index) {
+        Objects.checkIndex(index, size());
+        return data[reversed ? to - 1 - index : from + index];
+    }
+
+    public int lowerIndex(int value) {
+        return index(reversed ? ascendingFrom(value, false) : ascendingTo(value, false) - 1);
+    }
+
+    public int floorIndex(int value) {
+        return index(reversed ? ascendingFrom(value, true) : ascendingTo(value, true) - 1);
+    }
+
+    public int ceilingIndex(int value) {
+        return index(reversed ? ascendingTo(value, true) - 1 : ascendingFrom(value, true));
+    }
+
+    public int higherIndex(int value) {
+        return index(reversed ? ascendingTo(value, false) - 1 : ascendingFrom(value, false));
+    }
+
+    public int firstInt() {
+        emptyCheck();
+        return getInt(0);
+    }
+
+    public int lastInt() {
+        emptyCheck();
+        return getInt(size() - 1);
+    }
+
+    public PrimitiveIterator.OfInt intIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getInt(index++);
+            }
+        };
+    }
+
+    public int[] toIntArray() {
+        var result = Arrays.copyOfRange(data, from, to);
+        if (reversed) {
+            for (int i = 0, j = result.length - 1; i < j; ++i, --j) {
+                var t = result[i];
+                result[i] = result[j];
+                result[j] = t;
+            }
+        }
+        return result;
+    }
+
+    private Integer boxed(int index) {
+        return index < 0 ? null : getInt(index);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsInt((Integer) o);
+    }
+
+    @Override
+    public Integer lower(Integer value) {
+        return boxed(lowerIndex(value));
+    }
+
+    @Override
+    public Integer floor(Integer value) {
+        return boxed(floorIndex(value));
+    }
+
+    @Override
+    public Integer ceiling(Integer value) {
+        return boxed(ceilingIndex(value));
+    }
+
+    @Override
+    public Integer higher(Integer value) {
+        return boxed(higherIndex(value));
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException("Error: pollFirst is unsupported");
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException("Error: pollLast is unsupported");
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return intIterator();
+    }
+
+    @Override
+    public IntArraySet descendingSet() {
+        return new IntArraySet(data, from, to, !reversed);
+    }
+
+    @Override
+    public Iterator<Integer> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private IntArraySet range(int left, int right) {
+        return new IntArraySet(data, left, Math.max(left, right), reversed);
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+        if (reversed ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("Left bound should not be greater than right");
+        }
+        return reversed
+                ? range(ascendingFrom(toElement, toInclusive), ascendingTo(fromElement, fromInclusive))
+                : range(ascendingFrom(fromElement, fromInclusive), ascendingTo(toElement, toInclusive));
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement, boolean inclusive) {
+        return reversed
+                ? range(ascendingFrom(toElement, inclusive), to)
+                : range(from, ascendingTo(toElement, inclusive));
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement, boolean inclusive) {
+        return reversed
+                ? range(from, ascendingTo(fromElement, inclusive))
+                : range(ascendingFrom(fromElement, inclusive), to);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return reversed ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Integer> headSet(Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Integer> tailSet(Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    private void emptyCheck() {
+        if (isEmpty()) throw new NoSuchElementException("Try to access not exist element");
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; ++i) {
+            hash += Integer.hashCode(data[i]);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IntArraySetTest {
+    private final Random random = new Random(2019);
+
+    private static int index(NavigableSet<Integer> set, Integer value) {
+        return value == null ? -1 : set.headSet(value).size();
+    }
+
+    private static void assertSame(NavigableSet<Integer> expected, IntArraySet actual, int bound) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        var array = expected.stream().mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(array, actual.toIntArray());
+        var iterator = actual.intIterator();
+        for (int value : array) {
+            assertEquals(value, iterator.nextInt());
+        }
+        assertFalse(iterator.hasNext());
+        for (int key = -1; key <= bound; ++key) {
+            assertEquals(expected.contains(key), actual.containsInt(key));
+            assertEquals(expected.floor(key), actual.floor(key));
+            assertEquals(expected.higher(key), actual.higher(key));
+            assertEquals(index(expected, expected.lower(key)), actual.lowerIndex(key));
+            assertEquals(index(expected, expected.floor(key)), actual.floorIndex(key));
+            assertEquals(index(expected, expected.ceiling(key)), actual.ceilingIndex(key));
+            assertEquals(index(expected, expected.higher(key)), actual.higherIndex(key));
+        }
+    }
+
+    @Test
+    public void matchesTreeSet() {
+        for (int size : new int[]{0, 1, 5, 100, 1000}) {
+            var values = random.ints(size, 0, 2 * size + 1).toArray();
+            var expected = new TreeSet<Integer>();
+            Arrays.stream(values).forEach(expected::add);
+            var set = new IntArraySet(values);
+            assertSame(expected, set, 2 * size + 1);
+            assertSame(expected.descendingSet(), set.descendingSet(), 2 * size + 1);
+            assertSame(expected.subSet(size / 2, true, size, false), set.subSet(size / 2, true, size, false),
+                    2 * size + 1);
+            assertSame(expected.descendingSet().headSet(size / 3, true),
+                    set.descendingSet().headSet(size / 3, true), 2 * size + 1);
+        }
+    }
+
+    @Test
+    public void fromCollection() {
+        var set = new IntArraySet(List.of(3, -1, 3, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -1, 3, Integer.MAX_VALUE}, set.toIntArray());
+        assertEquals(Integer.MIN_VALUE, set.firstInt());
+        assertEquals(Integer.MAX_VALUE, set.lastInt());
+        assertEquals(new TreeSet<>(List.of(3, -1, Integer.MIN_VALUE, Integer.MAX_VALUE)), set);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstOfEmpty() {
+        new IntArraySet().firstInt();
+    }
+}
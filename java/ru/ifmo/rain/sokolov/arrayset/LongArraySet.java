@@ -0,0 +1,268 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import java.util.*;
+
+public class LongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private final long[] data;
+    private final int from;
+    private final int to;
+    private final boolean reversed;
+
+    public LongArraySet() {
+        this(new long[0], 0, 0, false);
+    }
+
+    public LongArraySet(long... values) {
+        this(sorted(values.clone()), false);
+    }
+
+    public LongArraySet(Collection<Long> values) {
+        this(sorted(toArray(values)), false);
+    }
+
+    private LongArraySet(long[] data, boolean reversed) {
+        this(data, 0, data.length, reversed);
+    }
+
+    private LongArraySet(long[] data, int from, int to, boolean reversed) {
+        this.data = data;
+        this.from = from;
+        this.to = to;
+        this.reversed = reversed;
+    }
+
+    private static long[] toArray(Collection<Long> values) {
+        var result = new long[values.size()];
+        int size = 0;
+        for (var value : values) {
+            result[size++] = value;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long[] sorted(long[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; ++i) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private int find(long value) {
+        return Arrays.binarySearch(data, from, to, value);
+    }
+
+    private int ascendingFrom(long value, boolean inclusive) {
+        int pos = find(value);
+        return pos >= 0 ? (inclusive ? pos : pos + 1) : ~pos;
+    }
+
+    private int ascendingTo(long value, boolean inclusive) {
+        int pos = find(value);
+        return pos >= 0 ? (inclusive ? pos + 1 : pos) : ~pos;
+    }
+
+    private int index(int pos) {
+        return pos < from || pos >= to ? -1 : reversed ? to - 1 - pos : pos - from;
+    }
+
+    public boolean containsLong(long value) {
+        return find(value) >= 0;
+    }
+
+    public long getLong(int index) {
+        Objects.checkIndex(index, size());
+        return data[reversed ? to - 1 - index : from + index];
+    }
+
+    public int lowerIndex(long value) {
+        return index(reversed ? ascendingFrom(value, false) : ascendingTo(value, false) - 1);
+    }
+
+    public int floorIndex(long value) {
+        return index(reversed ? ascendingFrom(value, true) : ascendingTo(value, true) - 1);
+    }
+
+    public int ceilingIndex(long value) {
+        return index(reversed ? ascendingTo(value, true) - 1 : ascendingFrom(value, true));
+    }
+
+    public int higherIndex(long value) {
+        return index(reversed ? ascendingTo(value, false) - 1 : ascendingFrom(value, false));
+    }
+
+    public long firstLong() {
+        emptyCheck();
+        return getLong(0);
+    }
+
+    public long lastLong() {
+        emptyCheck();
+        return getLong(size() - 1);
+    }
+
+    public PrimitiveIterator.OfLong longIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getLong(index++);
+            }
+        };
+    }
+
+    public long[] toLongArray() {
+        var result = Arrays.copyOfRange(data, from, to);
+        if (reversed) {
+            for (int i = 0, j = result.length - 1; i < j; ++i, --j) {
+                var t = result[i];
+                result[i] = result[j];
+                result[j] = t;
+            }
+        }
+        return result;
+    }
+
+    private Long boxed(int index) {
+        return index < 0 ? null : getLong(index);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public Long lower(Long value) {
+        return boxed(lowerIndex(value));
+    }
+
+    @Override
+    public Long floor(Long value) {
+        return boxed(floorIndex(value));
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        return boxed(ceilingIndex(value));
+    }
+
+    @Override
+    public Long higher(Long value) {
+        return boxed(higherIndex(value));
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException("Error: pollFirst is unsupported");
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException("Error: pollLast is unsupported");
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return longIterator();
+    }
+
+    @Override
+    public LongArraySet descendingSet() {
+        return new LongArraySet(data, from, to, !reversed);
+    }
+
+    @Override
+    public Iterator<Long> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private LongArraySet range(int left, int right) {
+        return new LongArraySet(data, left, Math.max(left, right), reversed);
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (reversed ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("Left bound should not be greater than right");
+        }
+        return reversed
+                ? range(ascendingFrom(toElement, toInclusive), ascendingTo(fromElement, fromInclusive))
+                : range(ascendingFrom(fromElement, fromInclusive), ascendingTo(toElement, toInclusive));
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement, boolean inclusive) {
+        return reversed
+                ? range(ascendingFrom(toElement, inclusive), to)
+                : range(from, ascendingTo(toElement, inclusive));
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement, boolean inclusive) {
+        return reversed
+                ? range(from, ascendingTo(fromElement, inclusive))
+                : range(ascendingFrom(fromElement, inclusive), to);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return reversed ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    private void emptyCheck() {
+        if (isEmpty()) throw new NoSuchElementException("Try to access not exist element");
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; ++i) {
+            hash += Long.hashCode(data[i]);
+        }
+        return hash;
+    }
+}
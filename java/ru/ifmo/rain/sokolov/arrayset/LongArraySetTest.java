@@ -0,0 +1,68 @@
+package ru.ifmo.rain.sokolov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LongArraySetTest {
+    private final Random random = new Random(2019);
+
+    private static int index(NavigableSet<Long> set, Long value) {
+        return value == null ? -1 : set.headSet(value).size();
+    }
+
+    private static void assertSame(NavigableSet<Long> expected, LongArraySet actual, long bound) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        var array = expected.stream().mapToLong(Long::longValue).toArray();
+        assertArrayEquals(array, actual.toLongArray());
+        var iterator = actual.longIterator();
+        for (long value : array) {
+            assertEquals(value, iterator.nextLong());
+        }
+        assertFalse(iterator.hasNext());
+        for (long key = -1; key <= bound; ++key) {
+            assertEquals(expected.contains(key), actual.containsLong(key));
+            assertEquals(expected.floor(key), actual.floor(key));
+            assertEquals(expected.higher(key), actual.higher(key));
+            assertEquals(index(expected, expected.lower(key)), actual.lowerIndex(key));
+            assertEquals(index(expected, expected.floor(key)), actual.floorIndex(key));
+            assertEquals(index(expected, expected.ceiling(key)), actual.ceilingIndex(key));
+            assertEquals(index(expected, expected.higher(key)), actual.higherIndex(key));
+        }
+    }
+
+    @Test
+    public void matchesTreeSet() {
+        for (int size : new int[]{0, 1, 5, 100, 1000}) {
+            var values = random.longs(size, 0, 2 * size + 1).toArray();
+            var expected = new TreeSet<Long>();
+            Arrays.stream(values).forEach(expected::add);
+            var set = new LongArraySet(values);
+            assertSame(expected, set, 2 * size + 1);
+            assertSame(expected.descendingSet(), set.descendingSet(), 2 * size + 1);
+            long half = size / 2;
+            assertSame(expected.subSet(half, true, (long) size, false), set.subSet(half, true, (long) size, false),
+                    2 * size + 1);
+            assertSame(expected.descendingSet().headSet(size / 3L, true),
+                    set.descendingSet().headSet(size / 3L, true), 2 * size + 1);
+        }
+    }
+
+    @Test
+    public void fromCollection() {
+        var set = new LongArraySet(List.of(3L, -1L, 3L, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 40));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, -1, 3, 1L << 40, Long.MAX_VALUE}, set.toLongArray());
+        assertEquals(Long.MIN_VALUE, set.firstLong());
+        assertEquals(Long.MAX_VALUE, set.lastLong());
+        assertTrue(set.containsLong(1L << 40));
+        assertFalse(set.containsLong(1L << 41));
+        assertEquals(new TreeSet<>(List.of(3L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 40)), set);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstOfEmpty() {
+        new LongArraySet().firstLong();
+    }
+}
@@ -0,0 +1,62 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+class ArchiveWalk {
+    static final String SEPARATOR = "!";
+
+    private final HashCounter counter;
+    private final WalkStats stats;
+
+    ArchiveWalk(HashCounter counter, WalkStats stats) {
+        this.counter = counter;
+        this.stats = stats;
+    }
+
+    static boolean isArchive(Path file) {
+        var name = file.getFileName();
+        if (name == null) {
+            return false;
+        }
+        var lower = name.toString().toLowerCase(Locale.ROOT);
+        return lower.endsWith(".zip") || lower.endsWith(".jar");
+    }
+
+    List<FileHash> hash(Path archive) {
+        var prefix = archive + SEPARATOR;
+        try (var fs = FileSystems.newFileSystem(archive, (ClassLoader) null)) {
+            List<Path> entries;
+            try (var stream = Files.walk(fs.getPath("/"))) {
+                entries = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+            return entries.parallelStream()
+                    .map(entry -> new FileHash(hash(entry, prefix + entry), prefix + entry))
+                    .collect(Collectors.toList());
+        } catch (IOException | ProviderNotFoundException | UncheckedIOException e) {
+            return List.of();
+        }
+    }
+
+    private long hash(Path entry, String name) {
+        if (stats == null) {
+            return counter.hash(entry);
+        }
+        long size;
+        try {
+            size = Files.size(entry);
+        } catch (IOException e) {
+            stats.failed();
+            return 0;
+        }
+        try {
+            return stats.time(name, size, () -> counter.checkedHash(entry));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+class AsyncWalk {
+    private static final int BUF_SIZE = 1 << 16;
+
+    private final Visitor visitor;
+    private final HashCache cache;
+    private final FileMemo memo;
+    private final int window;
+    private final Semaphore permits;
+    private final BlockingQueue<Slot> slots;
+    private final long[] hashes;
+    private final String[] files;
+    private final boolean[] done;
+    private long submitted = 0;
+    private long written = 0;
+    private IOException error;
+
+    AsyncWalk(Visitor visitor, HashFunction function, HashCache cache, FileMemo memo, int window) {
+        this.visitor = visitor;
+        this.cache = cache;
+        this.memo = memo;
+        this.window = window;
+        this.permits = new Semaphore(window);
+        this.slots = new ArrayBlockingQueue<>(window);
+        for (int i = 0; i < window; ++i) {
+            slots.add(new Slot(function.newHasher()));
+        }
+        this.hashes = new long[window];
+        this.files = new String[window];
+        this.done = new boolean[window];
+    }
+
+    private static class Slot {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUF_SIZE);
+        final HashFunction.Hasher hasher;
+
+        Slot(HashFunction.Hasher hasher) {
+            this.hasher = hasher;
+        }
+    }
+
+    void walk(String root) throws IOException {
+        try {
+            Files.walkFileTree(Paths.get(root), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    start(file, attrs);
+                    for (var entry : visitor.archiveEntries(file, attrs)) {
+                        complete(reserve(entry.file), entry.hash);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    visitor.failed();
+                    complete(reserve(file.toString()), 0);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    return exc != null ? visitFileFailed(dir, exc) : FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (InvalidPathException e) {
+            complete(reserve(root), 0);
+        }
+        checkError();
+    }
+
+    void finish() throws IOException {
+        permits.acquireUninterruptibly(window);
+        permits.release(window);
+        checkError();
+    }
+
+    private synchronized void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private long reserve(String file) {
+        permits.acquireUninterruptibly();
+        synchronized (this) {
+            int index = (int) (submitted % window);
+            files[index] = file;
+            done[index] = false;
+            return submitted++;
+        }
+    }
+
+    private synchronized void complete(long sequence, long hash) {
+        int index = (int) (sequence % window);
+        hashes[index] = hash;
+        done[index] = true;
+        while (written < submitted && done[index = (int) (written % window)]) {
+            try {
+                visitor.write(hashes[index], files[index]);
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+            done[index] = false;
+            files[index] = null;
+            written++;
+            permits.release();
+        }
+    }
+
+    private void start(Path file, BasicFileAttributes attrs) {
+        long sequence = reserve(file.toString());
+        long started = System.nanoTime();
+        var cached = memo != null ? memo.lookup(file, attrs) : null;
+        if (cached == null && cache != null) {
+            cached = cache.lookup(file, attrs);
+        }
+        if (cached != null) {
+            visitor.hashed(file, attrs, System.nanoTime() - started, false);
+            complete(sequence, cached);
+            return;
+        }
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            visitor.hashed(file, attrs, System.nanoTime() - started, true);
+            complete(sequence, 0);
+            return;
+        }
+        new Read(sequence, file, attrs, channel, slots.remove(), started).next();
+    }
+
+    private class Read implements CompletionHandler<Integer, Void> {
+        private final long sequence;
+        private final Path file;
+        private final BasicFileAttributes attrs;
+        private final AsynchronousFileChannel channel;
+        private final Slot slot;
+        private final long started;
+        private long position = 0;
+
+        Read(long sequence, Path file, BasicFileAttributes attrs, AsynchronousFileChannel channel, Slot slot,
+             long started) {
+            this.sequence = sequence;
+            this.file = file;
+            this.attrs = attrs;
+            this.channel = channel;
+            this.slot = slot;
+            this.started = started;
+            slot.hasher.reset();
+        }
+
+        void next() {
+            slot.buffer.clear();
+            try {
+                channel.read(slot.buffer, position, null, this);
+            } catch (RuntimeException e) {
+                finish(0, true);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            if (read == -1) {
+                long hash = slot.hasher.getValue();
+                if (cache != null) {
+                    cache.store(file, attrs, hash);
+                }
+                if (memo != null) {
+                    memo.store(file, attrs, hash);
+                }
+                finish(hash, false);
+                return;
+            }
+            slot.buffer.flip();
+            slot.hasher.update(slot.buffer);
+            position += read;
+            next();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            finish(0, true);
+        }
+
+        private void finish(long hash, boolean failed) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            slots.add(slot);
+            visitor.hashed(file, attrs, System.nanoTime() - started, failed);
+            complete(sequence, hash);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+class BinaryResultReader implements Closeable {
+    private final DataInputStream in;
+    private final int hashBytes;
+    private final long treeChunk;
+    private byte[] path = new byte[256];
+    private String file;
+    private long hash;
+
+    BinaryResultReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if (this.in.readInt() != BinaryResultWriter.MAGIC) {
+            throw new IOException("Not a binary walk output");
+        }
+        hashBytes = this.in.readUnsignedByte();
+        if (hashBytes != Integer.BYTES && hashBytes != Long.BYTES) {
+            throw new IOException("Unsupported hash width: " + hashBytes);
+        }
+        treeChunk = this.in.readLong();
+    }
+
+    int digits() {
+        return hashBytes * 2;
+    }
+
+    long treeChunk() {
+        return treeChunk;
+    }
+
+    boolean next() throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            return false;
+        }
+        int shared = readVarInt(first);
+        int suffix = readVarInt(in.readUnsignedByte());
+        if (shared + suffix > path.length) {
+            path = Arrays.copyOf(path, Math.max(shared + suffix, path.length * 2));
+        }
+        in.readFully(path, shared, suffix);
+        file = new String(path, 0, shared + suffix, StandardCharsets.UTF_8);
+        hash = hashBytes == Long.BYTES ? in.readLong() : Integer.toUnsignedLong(in.readInt());
+        return true;
+    }
+
+    long hash() {
+        return hash;
+    }
+
+    String file() {
+        return file;
+    }
+
+    private int readVarInt(int first) throws IOException {
+        int value = first & 0x7f;
+        for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+            first = in.readUnsignedByte();
+            value |= (first & 0x7f) << shift;
+        }
+        return value;
+    }
+
+    static void toText(Path binary, Path text) throws IOException {
+        try (var reader = new BinaryResultReader(Files.newInputStream(binary));
+             var writer = new TextResultWriter(Files.newBufferedWriter(text), reader.digits(), reader.treeChunk())) {
+            while (reader.next()) {
+                writer.write(reader.hash(), reader.file());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
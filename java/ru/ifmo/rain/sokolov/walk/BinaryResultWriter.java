@@ -0,0 +1,99 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+class BinaryResultWriter implements ResultWriter {
+    static final int MAGIC = 0x52574232;
+    private static final int BUF_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final int hashBytes;
+    private final ByteBuffer buf = ByteBuffer.allocate(BUF_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer previous = ByteBuffer.allocate(256);
+    private ByteBuffer current = ByteBuffer.allocate(256);
+
+    BinaryResultWriter(OutputStream out, int digits, long treeChunk) {
+        this.out = out;
+        this.hashBytes = digits / 2;
+        buf.putInt(MAGIC).put((byte) hashBytes).putLong(treeChunk);
+        previous.flip();
+    }
+
+    @Override
+    public void write(long hash, String file) throws IOException {
+        encode(file);
+        int shared = 0;
+        int limit = Math.min(previous.limit(), current.limit());
+        while (shared < limit && previous.get(shared) == current.get(shared)) {
+            shared++;
+        }
+        int suffix = current.limit() - shared;
+        ensure(2 * 5 + hashBytes);
+        putVarInt(shared);
+        putVarInt(suffix);
+        current.position(shared);
+        while (current.hasRemaining()) {
+            ensure(1);
+            int chunk = Math.min(current.remaining(), buf.remaining());
+            buf.put(current.slice().limit(chunk));
+            current.position(current.position() + chunk);
+        }
+        ensure(hashBytes);
+        if (hashBytes == Long.BYTES) {
+            buf.putLong(hash);
+        } else {
+            buf.putInt((int) hash);
+        }
+        var swap = previous;
+        previous = current;
+        current = swap;
+    }
+
+    private void encode(String file) {
+        var chars = CharBuffer.wrap(file);
+        current.clear();
+        encoder.reset();
+        while (encoder.encode(chars, current, true).isOverflow()) {
+            var bigger = ByteBuffer.allocate(current.capacity() * 2);
+            current.flip();
+            current = bigger.put(current);
+        }
+        encoder.flush(current);
+        current.flip();
+    }
+
+    private void putVarInt(int value) {
+        while ((value & ~0x7f) != 0) {
+            buf.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buf.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(buf.array(), 0, buf.position());
+        buf.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+class Crc32cHash implements HashFunction {
+    @Override
+    public String name() {
+        return "crc32c";
+    }
+
+    @Override
+    public int digits() {
+        return 8;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        var crc = new CRC32C();
+        return new Hasher() {
+            @Override
+            public void reset() {
+                crc.reset();
+            }
+
+            @Override
+            public void update(ByteBuffer buf) {
+                crc.update(buf);
+            }
+
+            @Override
+            public long getValue() {
+                return crc.getValue();
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+class DiffWriter implements ResultWriter {
+    private final ResultWriter delegate;
+    private final Snapshot snapshot;
+    private final PrintStream out;
+    private final String format;
+
+    DiffWriter(ResultWriter delegate, Snapshot snapshot, int digits, PrintStream out) {
+        this.delegate = delegate;
+        this.snapshot = snapshot;
+        this.out = out;
+        this.format = "%s %0" + digits + "x %s%n";
+    }
+
+    @Override
+    public void write(long hash, String file) throws IOException {
+        delegate.write(hash, file);
+        int slot = snapshot.visit(file);
+        if (slot < 0) {
+            out.printf(format, "A", hash, file);
+        } else if (snapshot.hash(slot) != hash) {
+            out.printf(format, "M", hash, file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (delegate) {
+            snapshot.forEachUnseen((hash, file) -> out.printf(format, "D", hash, file));
+            out.flush();
+        }
+    }
+}
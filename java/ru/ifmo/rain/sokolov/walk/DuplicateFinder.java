@@ -0,0 +1,120 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Collectors;
+
+class DuplicateFinder {
+    private static final int SAMPLE_SIZE = 4096;
+
+    private final HashCounter counter;
+    private final Visitor visitor;
+    private final BufferedWriter writer;
+    private final boolean parallel;
+    private final Map<Long, List<Candidate>> bySize = new LinkedHashMap<>();
+    private final Set<Path> seen = new HashSet<>();
+
+    DuplicateFinder(BufferedWriter writer, HashCounter counter, HashCache cache, FileMemo memo, WalkStats stats,
+                    boolean parallel) throws IOException {
+        this.counter = counter;
+        this.visitor = new Visitor(new TextResultWriter(writer, counter.function().digits(), counter.treeChunk()),
+                counter, cache, memo, null, stats);
+        this.writer = writer;
+        this.parallel = parallel;
+    }
+
+    private static class Candidate {
+        final Path file;
+        final BasicFileAttributes attrs;
+        long hash;
+        boolean failed;
+
+        Candidate(Path file, BasicFileAttributes attrs) {
+            this.file = file;
+            this.attrs = attrs;
+        }
+    }
+
+    private interface CandidateHash {
+        long hash(Candidate candidate) throws IOException;
+    }
+
+    void add(String root) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(root);
+        } catch (InvalidPathException e) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && seen.add(file.toAbsolutePath().normalize())) {
+                    bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>()).add(new Candidate(file, attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                visitor.failed();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    void write() throws IOException {
+        var sizes = new ArrayList<>(bySize.keySet());
+        sizes.sort(Comparator.reverseOrder());
+        for (var size : sizes) {
+            var group = bySize.get(size);
+            if (group.size() < 2) {
+                continue;
+            }
+            boolean complete = size <= 2 * SAMPLE_SIZE && counter.treeChunk() == 0;
+            var samples = complete
+                    ? split(group, candidate -> visitor.timed(candidate.file, candidate.attrs,
+                            () -> counter.sampleHash(candidate.file, SAMPLE_SIZE)))
+                    : split(group, candidate -> counter.sampleHash(candidate.file, SAMPLE_SIZE));
+            if (!complete) {
+                group.stream().filter(candidate -> candidate.failed).forEach(candidate -> visitor.failed());
+            }
+            for (var sampled : samples) {
+                if (complete) {
+                    writeCluster(sampled);
+                    continue;
+                }
+                for (var cluster : split(sampled, candidate -> visitor.checkedHash(candidate.file, candidate.attrs))) {
+                    writeCluster(cluster);
+                }
+            }
+        }
+    }
+
+    private List<List<Candidate>> split(List<Candidate> group, CandidateHash hash) {
+        (parallel ? group.parallelStream() : group.stream()).forEach(candidate -> {
+            try {
+                candidate.hash = hash.hash(candidate);
+                candidate.failed = false;
+            } catch (IOException e) {
+                candidate.failed = true;
+            }
+        });
+        return group.stream()
+                .filter(candidate -> !candidate.failed)
+                .collect(Collectors.groupingBy(candidate -> candidate.hash, LinkedHashMap::new, Collectors.toList()))
+                .values().stream()
+                .filter(cluster -> cluster.size() > 1)
+                .collect(Collectors.toList());
+    }
+
+    private void writeCluster(List<Candidate> cluster) throws IOException {
+        for (var candidate : cluster) {
+            visitor.write(candidate.hash, candidate.file.toString());
+        }
+        writer.newLine();
+    }
+}
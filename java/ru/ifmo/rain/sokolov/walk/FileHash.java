@@ -0,0 +1,11 @@
+package ru.ifmo.rain.sokolov.walk;
+
+class FileHash {
+    final long hash;
+    final String file;
+
+    FileHash(long hash, String file) {
+        this.hash = hash;
+        this.file = file;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+class FileMemo {
+    private final List<Path> nestedRoots;
+    private final boolean everyFile;
+    private final ConcurrentMap<Object, CompletableFuture<Long>> hashes = new ConcurrentHashMap<>();
+
+    interface Computation {
+        long hash() throws IOException;
+    }
+
+    private FileMemo(List<Path> nestedRoots, boolean everyFile) {
+        this.nestedRoots = nestedRoots;
+        this.everyFile = everyFile;
+    }
+
+    static FileMemo forRoots(List<String> roots, boolean everyFile) {
+        var paths = new ArrayList<Path>();
+        for (var root : roots) {
+            try {
+                paths.add(normalize(Paths.get(root)));
+            } catch (InvalidPathException ignored) {
+            }
+        }
+        var nested = new ArrayList<Path>();
+        for (int i = 0; i < paths.size(); ++i) {
+            for (int j = 0; j < paths.size(); ++j) {
+                if (i != j && paths.get(i).startsWith(paths.get(j))) {
+                    nested.add(paths.get(i));
+                    break;
+                }
+            }
+        }
+        return everyFile || !nested.isEmpty() ? new FileMemo(nested, everyFile) : null;
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private boolean covers(Path file, BasicFileAttributes attrs) {
+        if (!attrs.isRegularFile()) {
+            return false;
+        }
+        if (everyFile) {
+            return true;
+        }
+        var normalized = normalize(file);
+        for (var root : nestedRoots) {
+            if (normalized.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object key(Path file, BasicFileAttributes attrs) {
+        var fileKey = attrs.fileKey();
+        return fileKey != null ? fileKey : normalize(file);
+    }
+
+    long hash(Path file, BasicFileAttributes attrs, Computation compute) throws IOException {
+        if (!covers(file, attrs)) {
+            return compute.hash();
+        }
+        var future = new CompletableFuture<Long>();
+        var existing = hashes.putIfAbsent(key(file, attrs), future);
+        if (existing == null) {
+            try {
+                long hash = compute.hash();
+                future.complete(hash);
+                return hash;
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        // join() lets the fork/join pool compensate for a worker waiting on another one
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    Long lookup(Path file, BasicFileAttributes attrs) {
+        if (!covers(file, attrs)) {
+            return null;
+        }
+        var future = hashes.get(key(file, attrs));
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    void store(Path file, BasicFileAttributes attrs, long hash) {
+        if (covers(file, attrs)) {
+            hashes.putIfAbsent(key(file, attrs), CompletableFuture.completedFuture(hash));
+        }
+    }
+
+    void clear() {
+        hashes.clear();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+class Fnv1Hash implements HashFunction {
+    private static final int FNV_FACTOR = 0x01000193;
+    private static final int FNV_START = 0x811c9dc5;
+    private static final int FNV_AND = 0xff;
+
+    @Override
+    public String name() {
+        return "fnv1";
+    }
+
+    @Override
+    public int digits() {
+        return 8;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private int hash = FNV_START;
+
+            @Override
+            public void reset() {
+                hash = FNV_START;
+            }
+
+            @Override
+            public void update(ByteBuffer buf) {
+                int h = hash;
+                int i = buf.position();
+                int limit = buf.limit();
+                var words = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+                for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+                    long word = words.getLong(i);
+                    for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                        h = (h * FNV_FACTOR) ^ ((int) (word >>> shift) & FNV_AND);
+                    }
+                }
+                for (; i < limit; ++i) {
+                    h = (h * FNV_FACTOR) ^ (buf.get(i) & FNV_AND);
+                }
+                buf.position(limit);
+                hash = h;
+            }
+
+            @Override
+            public long getValue() {
+                return Integer.toUnsignedLong(hash);
+            }
+        };
+    }
+}
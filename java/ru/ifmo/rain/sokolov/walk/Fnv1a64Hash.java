@@ -0,0 +1,56 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+class Fnv1a64Hash implements HashFunction {
+    private static final long FNV_FACTOR = 0x100000001b3L;
+    private static final long FNV_START = 0xcbf29ce484222325L;
+    private static final int FNV_AND = 0xff;
+
+    @Override
+    public String name() {
+        return "fnv1a64";
+    }
+
+    @Override
+    public int digits() {
+        return 16;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private long hash = FNV_START;
+
+            @Override
+            public void reset() {
+                hash = FNV_START;
+            }
+
+            @Override
+            public void update(ByteBuffer buf) {
+                long h = hash;
+                int i = buf.position();
+                int limit = buf.limit();
+                var words = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+                for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+                    long word = words.getLong(i);
+                    for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                        h = (h ^ ((word >>> shift) & FNV_AND)) * FNV_FACTOR;
+                    }
+                }
+                for (; i < limit; ++i) {
+                    h = (h ^ (buf.get(i) & FNV_AND)) * FNV_FACTOR;
+                }
+                buf.position(limit);
+                hash = h;
+            }
+
+            @Override
+            public long getValue() {
+                return hash;
+            }
+        };
+    }
+}
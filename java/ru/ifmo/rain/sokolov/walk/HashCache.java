@@ -0,0 +1,118 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+class HashCache {
+    private static final int MAGIC = 0x48434832;
+    private static final long RACY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Path path;
+    private final String algorithm;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final long startNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+    private HashCache(Path path, String algorithm, Map<String, Entry> previous) {
+        this.path = path;
+        this.algorithm = algorithm;
+        this.previous = previous;
+    }
+
+    private static class Entry {
+        final long size;
+        final long modified;
+        final long hash;
+
+        Entry(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+
+    static HashCache load(Path path, String algorithm) {
+        var entries = new ConcurrentHashMap<String, Entry>();
+        if (Files.exists(path)) {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("not a hash cache");
+                }
+                if (!in.readUTF().equals(algorithm)) {
+                    throw new IOException("computed with another hash function");
+                }
+                for (int count = in.readInt(); count > 0; --count) {
+                    entries.put(in.readUTF(), new Entry(in.readLong(), in.readLong(), in.readLong()));
+                }
+            } catch (IOException e) {
+                System.err.println("Ignoring hash cache " + path + " (" + e.getMessage() + ")");
+                entries.clear();
+            }
+        }
+        return new HashCache(path, algorithm, entries);
+    }
+
+    private static String key(Path file, BasicFileAttributes attrs) {
+        var fileKey = attrs.fileKey();
+        return fileKey != null ? fileKey.toString() : file.toAbsolutePath().normalize().toString();
+    }
+
+    private static long modified(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    long hash(Path file, BasicFileAttributes attrs, HashCounter counter) throws IOException {
+        var cached = lookup(file, attrs);
+        if (cached != null) {
+            return cached;
+        }
+        long hash = counter.checkedHash(file);
+        store(file, attrs, hash);
+        return hash;
+    }
+
+    Long lookup(Path file, BasicFileAttributes attrs) {
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+        var key = key(file, attrs);
+        var entry = previous.get(key);
+        if (entry == null || entry.size != attrs.size() || entry.modified != modified(attrs)) {
+            return null;
+        }
+        current.put(key, entry);
+        return entry.hash;
+    }
+
+    void store(Path file, BasicFileAttributes attrs, long hash) {
+        long modified = modified(attrs);
+        // A file changed within the timestamp granularity could keep its mtime, so it is not trusted yet
+        if (attrs.isRegularFile() && modified <= startNanos - RACY_NANOS) {
+            current.put(key(file, attrs), new Entry(attrs.size(), modified, hash));
+        }
+    }
+
+    void save() throws IOException {
+        var temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(algorithm);
+            out.writeInt(current.size());
+            for (var entry : current.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().modified);
+                out.writeLong(entry.getValue().hash);
+            }
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
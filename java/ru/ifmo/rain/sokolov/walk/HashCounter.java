@@ -1,28 +1,256 @@
 package ru.ifmo.rain.sokolov.walk;
 
+import com.sun.nio.file.ExtendedOpenOption;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 class HashCounter {
-    private static final int FNV_FACTOR = 0x01000193;
-    private static final int FNV_START = 0x811c9dc5;
-    private static final int FNV_AND = 0xff;
-    private static final int BUF_SIZE = 1024;
-    private static byte[] buf = new byte[BUF_SIZE];
-
-    static int getFNV1Hash(Path path) {
-        int hash = FNV_START;
-        try (var inputStream = Files.newInputStream(path)) {
-            int sz;
-            while ((sz = inputStream.read(buf, 0, BUF_SIZE)) != -1) {
-                for (int i = 0; i < sz; ++i) {
-                    hash = (hash * FNV_FACTOR) ^ (buf[i] & FNV_AND);
+    static final long DEFAULT_MAP_THRESHOLD = 16L << 20;
+    static final long DEFAULT_MAP_WINDOW = 64L << 20;
+    static final long MIN_MAP_WINDOW = 1L << 16;
+    static final long MIN_TREE_CHUNK = 1L << 16;
+
+    private static final int BUF_SIZE = 1 << 16;
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUF_SIZE));
+    private static final int DIRECT_ALIGNMENT = 4096;
+    private static final int DIRECT_BUF_SIZE = 1 << 20;
+    private static final OpenOption DIRECT = directOption();
+    private static final ThreadLocal<ByteBuffer> alignedBuffers = ThreadLocal.withInitial(() ->
+            ByteBuffer.allocateDirect(DIRECT_BUF_SIZE + DIRECT_ALIGNMENT).alignedSlice(DIRECT_ALIGNMENT));
+
+    private final HashFunction function;
+    private final ThreadLocal<HashFunction.Hasher> hashers;
+    private final long mapThreshold;
+    private final long mapWindow;
+    private final long treeChunk;
+    private final boolean direct;
+
+    HashCounter() {
+        this(new Fnv1Hash(), DEFAULT_MAP_THRESHOLD, DEFAULT_MAP_WINDOW, 0, false);
+    }
+
+    HashCounter(HashFunction function, long mapThreshold, long mapWindow, long treeChunk, boolean direct) {
+        if (treeChunk != 0 && treeChunk < MIN_TREE_CHUNK) {
+            throw new IllegalArgumentException("Tree chunk should be at least " + MIN_TREE_CHUNK);
+        }
+        if (mapWindow < MIN_MAP_WINDOW || mapWindow > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Map window should be in ["
+                    + MIN_MAP_WINDOW + ", " + Integer.MAX_VALUE + "]");
+        }
+        this.function = function;
+        this.hashers = ThreadLocal.withInitial(function::newHasher);
+        this.mapThreshold = mapThreshold;
+        this.mapWindow = mapWindow;
+        this.treeChunk = treeChunk;
+        this.direct = direct;
+    }
+
+    HashFunction function() {
+        return function;
+    }
+
+    long treeChunk() {
+        return treeChunk;
+    }
+
+    String description() {
+        return treeChunk == 0 ? function.name() : function.name() + "/tree-" + treeChunk;
+    }
+
+    long hash(Path path) {
+        try {
+            return checkedHash(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    long checkedHash(Path path) throws IOException {
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            try (var channel = Files.newByteChannel(path)) {
+                if (treeChunk > 0) {
+                    return streamedTreeHash(channel);
                 }
+                var hasher = hashers.get();
+                hasher.reset();
+                streamed(channel, hasher);
+                return hasher.getValue();
+            }
+        }
+        if (direct) {
+            var hash = directHash(path);
+            if (hash != null) {
+                return hash;
+            }
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (treeChunk > 0) {
+                return treeHash(channel, size);
             }
-            return hash;
+            var hasher = hashers.get();
+            hasher.reset();
+            if (size >= mapThreshold) {
+                mapped(channel, size, hasher);
+            } else {
+                streamed(channel, hasher);
+            }
+            return hasher.getValue();
+        }
+    }
+
+    private static OpenOption directOption() {
+        try {
+            return ExtendedOpenOption.DIRECT;
+        } catch (NoClassDefFoundError e) {
+            return null;
+        }
+    }
+
+    private Long directHash(Path path) {
+        if (DIRECT == null) {
+            return null;
+        }
+        var hasher = hashers.get();
+        hasher.reset();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ, DIRECT)) {
+            var buf = alignedBuffers.get();
+            int read;
+            do {
+                buf.clear();
+                read = channel.read(buf);
+                buf.flip();
+                hasher.update(buf);
+            } while (read == buf.capacity());
+            return hasher.getValue();
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private long treeHash(FileChannel channel, long size) throws IOException {
+        var leaves = new long[(int) ((size + treeChunk - 1) / treeChunk)];
+        try {
+            IntStream.range(0, leaves.length).parallel().forEach(i -> leaves[i] = leafHash(channel, i, size));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return combine(leaves, leaves.length);
+    }
+
+    private long streamedTreeHash(ReadableByteChannel channel) throws IOException {
+        var hasher = hashers.get();
+        var buf = buffers.get();
+        var leaves = new long[16];
+        int count = 0;
+        boolean end = false;
+        while (!end) {
+            hasher.reset();
+            long remaining = treeChunk;
+            while (remaining > 0) {
+                buf.clear().limit((int) Math.min(buf.capacity(), remaining));
+                int read = channel.read(buf);
+                if (read == -1) {
+                    end = true;
+                    break;
+                }
+                buf.flip();
+                hasher.update(buf);
+                remaining -= read;
+            }
+            if (remaining < treeChunk) {
+                if (count == leaves.length) {
+                    leaves = Arrays.copyOf(leaves, count * 2);
+                }
+                leaves[count++] = hasher.getValue();
+            }
+        }
+        return combine(leaves, count);
+    }
+
+    private long combine(long[] leaves, int count) {
+        var hasher = hashers.get();
+        hasher.reset();
+        var buf = buffers.get();
+        buf.clear();
+        for (int i = 0; i < count; ++i) {
+            if (buf.remaining() < Long.BYTES) {
+                hasher.update(buf.flip());
+                buf.clear();
+            }
+            buf.putLong(leaves[i]);
+        }
+        hasher.update(buf.flip());
+        return hasher.getValue();
+    }
+
+    private long leafHash(FileChannel channel, int index, long size) {
+        var hasher = hashers.get();
+        hasher.reset();
+        long position = index * treeChunk;
+        try {
+            readFully(channel, position, Math.min(treeChunk, size - position), buffers.get(), hasher);
         } catch (IOException e) {
-            return 0;
+            throw new UncheckedIOException(e);
+        }
+        return hasher.getValue();
+    }
+
+    long sampleHash(Path path, int sample) throws IOException {
+        var hasher = hashers.get();
+        hasher.reset();
+        var buf = buffers.get();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            readFully(channel, 0, Math.min(sample, size), buf, hasher);
+            if (size > sample) {
+                long tail = Math.max(sample, size - sample);
+                readFully(channel, tail, size - tail, buf, hasher);
+            }
+            return hasher.getValue();
+        }
+    }
+
+    private static void readFully(FileChannel channel, long position, long length, ByteBuffer buf,
+                                  HashFunction.Hasher hasher) throws IOException {
+        while (length > 0) {
+            buf.clear().limit((int) Math.min(buf.capacity(), length));
+            int read = channel.read(buf, position);
+            if (read == -1) {
+                return;
+            }
+            buf.flip();
+            hasher.update(buf);
+            position += read;
+            length -= read;
+        }
+    }
+
+    private void streamed(ReadableByteChannel channel, HashFunction.Hasher hasher) throws IOException {
+        var buf = buffers.get();
+        buf.clear();
+        while (channel.read(buf) != -1) {
+            buf.flip();
+            hasher.update(buf);
+            buf.clear();
+        }
+    }
+
+    private void mapped(FileChannel channel, long size, HashFunction.Hasher hasher) throws IOException {
+        for (long position = 0; position < size; position += mapWindow) {
+            hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mapWindow, size - position)));
         }
     }
 }
@@ -0,0 +1,29 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+interface HashFunction {
+    List<HashFunction> ALL = List.of(new Fnv1Hash(), new Fnv1a64Hash(), new Crc32cHash());
+
+    String name();
+
+    int digits();
+
+    Hasher newHasher();
+
+    interface Hasher {
+        void reset();
+
+        void update(ByteBuffer buf);
+
+        long getValue();
+    }
+
+    static HashFunction forName(String name) throws WalkException {
+        return ALL.stream()
+                .filter(function -> function.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new WalkException("Unknown hash function: " + name));
+    }
+}
@@ -0,0 +1,186 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+class MerkleTree {
+    private static final String HEADER = "# merkle ";
+
+    private final HashFunction function;
+    private final Node root = new Node(true);
+
+    MerkleTree(HashFunction function) {
+        this.function = function;
+    }
+
+    private static class Node {
+        final Map<String, Node> children;
+        long hash;
+
+        Node(boolean directory) {
+            children = directory ? new TreeMap<>() : null;
+        }
+
+        boolean isDirectory() {
+            return children != null;
+        }
+    }
+
+    void add(String file, long hash) {
+        add(file, hash, false);
+    }
+
+    private void add(String file, long hash, boolean directory) {
+        Path path;
+        try {
+            path = Paths.get(file);
+        } catch (InvalidPathException e) {
+            return;
+        }
+        var node = root;
+        if (path.getRoot() != null) {
+            node = child(node, path.getRoot().toString(), path.getNameCount() > 0 || directory);
+        }
+        for (int i = 0; i < path.getNameCount(); ++i) {
+            node = child(node, path.getName(i).toString(), i + 1 < path.getNameCount() || directory);
+        }
+        node.hash = hash;
+    }
+
+    private static Node child(Node parent, String name, boolean directory) {
+        var node = parent.children.get(name);
+        if (node == null || directory && !node.isDirectory()) {
+            node = new Node(directory);
+            parent.children.put(name, node);
+        }
+        return node;
+    }
+
+    void computeDirectories() {
+        compute(root, ByteBuffer.allocate(256), function.newHasher());
+    }
+
+    private ByteBuffer compute(Node node, ByteBuffer buf, HashFunction.Hasher hasher) {
+        for (var child : node.children.values()) {
+            if (child.isDirectory()) {
+                buf = compute(child, buf, hasher);
+            }
+        }
+        hasher.reset();
+        for (var entry : node.children.entrySet()) {
+            var name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (buf.capacity() < name.length + 2 + Long.BYTES) {
+                buf = ByteBuffer.allocate(2 * (name.length + 2 + Long.BYTES));
+            }
+            buf.clear();
+            buf.put(name).put((byte) 0).put((byte) (entry.getValue().isDirectory() ? 'd' : 'f'))
+                    .putLong(entry.getValue().hash).flip();
+            hasher.update(buf);
+        }
+        node.hash = hasher.getValue();
+        return buf;
+    }
+
+    void save(Path path) throws IOException {
+        try (var writer = Files.newBufferedWriter(path)) {
+            writer.write(HEADER + function.name());
+            writer.newLine();
+            for (var entry : root.children.entrySet()) {
+                save(writer, Paths.get(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    private void save(BufferedWriter writer, Path path, Node node) throws IOException {
+        var format = "%s %0" + function.digits() + "x %s";
+        writer.write(String.format(format, node.isDirectory() ? "d" : "f", node.hash, path));
+        writer.newLine();
+        if (node.isDirectory()) {
+            for (var entry : node.children.entrySet()) {
+                save(writer, path.resolve(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    static MerkleTree load(Path path) throws IOException {
+        try (var reader = Files.newBufferedReader(path)) {
+            var header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER)) {
+                throw new IOException("Not a merkle tree file: " + path);
+            }
+            var tree = new MerkleTree(HashFunction.forName(header.substring(HEADER.length())));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ', 2);
+                if (space < 0 || line.charAt(1) != ' ') {
+                    throw new IOException("Invalid merkle tree line: " + line);
+                }
+                try {
+                    long hash = Long.parseUnsignedLong(line.substring(2, space), 16);
+                    tree.add(line.substring(space + 1), hash, line.charAt(0) == 'd');
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid merkle tree line: " + line);
+                }
+            }
+            return tree;
+        } catch (WalkException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    static void diff(MerkleTree before, MerkleTree after, BufferedWriter writer) throws IOException {
+        if (!before.function.name().equals(after.function.name())) {
+            throw new IOException("Trees are computed with different hash functions");
+        }
+        var format = "%s %0" + after.function.digits() + "x %s";
+        diff(null, before.root, after.root, writer, format);
+    }
+
+    private static void diff(Path path, Node before, Node after, BufferedWriter writer, String format)
+            throws IOException {
+        if (before != null && after != null && before.isDirectory() == after.isDirectory()) {
+            if (path != null && before.hash == after.hash) {
+                return;
+            }
+            if (!after.isDirectory()) {
+                report("M", path, after, writer, format);
+                return;
+            }
+            var names = new TreeSet<>(before.children.keySet());
+            names.addAll(after.children.keySet());
+            for (var name : names) {
+                var child = path == null ? Paths.get(name) : path.resolve(name);
+                diff(child, before.children.get(name), after.children.get(name), writer, format);
+            }
+            return;
+        }
+        if (before != null) {
+            report("D", path, before, writer, format);
+        }
+        if (after != null) {
+            report("A", path, after, writer, format);
+        }
+    }
+
+    private static void report(String kind, Path path, Node node, BufferedWriter writer, String format)
+            throws IOException {
+        if (node.isDirectory()) {
+            for (var entry : node.children.entrySet()) {
+                var child = path == null ? Paths.get(entry.getKey()) : path.resolve(entry.getKey());
+                report(kind, child, entry.getValue(), writer, format);
+            }
+        } else {
+            writer.write(String.format(format, kind, node.hash, path));
+            writer.newLine();
+        }
+    }
+}
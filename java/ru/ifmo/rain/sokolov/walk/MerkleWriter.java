@@ -0,0 +1,30 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class MerkleWriter implements ResultWriter {
+    private final ResultWriter delegate;
+    private final MerkleTree tree;
+    private final Path treePath;
+
+    MerkleWriter(ResultWriter delegate, HashFunction function, Path treePath) {
+        this.delegate = delegate;
+        this.tree = new MerkleTree(function);
+        this.treePath = treePath;
+    }
+
+    @Override
+    public void write(long hash, String file) throws IOException {
+        delegate.write(hash, file);
+        tree.add(file, hash);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (delegate) {
+            tree.computeDirectories();
+            tree.save(treePath);
+        }
+    }
+}
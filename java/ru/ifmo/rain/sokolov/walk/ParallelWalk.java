@@ -0,0 +1,122 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+class ParallelWalk implements AutoCloseable {
+    private static final int WINDOW_PER_THREAD = 64;
+
+    private final Visitor visitor;
+    private final ForkJoinPool pool;
+    private final int window;
+    private final Deque<ForkJoinTask<List<FileHash>>> pending = new ArrayDeque<>();
+
+    ParallelWalk(Visitor visitor, int parallelism) {
+        this.visitor = visitor;
+        this.pool = parallelism == 0 ? new ForkJoinPool() : new ForkJoinPool(parallelism);
+        this.window = WINDOW_PER_THREAD * pool.getParallelism();
+    }
+
+    private static class Listing {
+        final List<Path> children = new ArrayList<>();
+        final List<BasicFileAttributes> attributes = new ArrayList<>();
+        boolean failed;
+    }
+
+    void walk(String root) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(root);
+        } catch (InvalidPathException e) {
+            visitor.write(0, root);
+            return;
+        }
+        visit(path, attributes(path), null);
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Hashing and listing run in the pool while this thread writes finished entries in walk order,
+    // staying at most window files ahead of the output.
+    private void visit(Path path, BasicFileAttributes attrs, ForkJoinTask<Listing> listing) throws IOException {
+        if (attrs == null) {
+            enqueue(ForkJoinTask.adapt(() -> failed(path)));
+            return;
+        }
+        if (!attrs.isDirectory()) {
+            enqueue(ForkJoinTask.adapt(() -> visitor.hashWithEntries(path, attrs)));
+            return;
+        }
+        var dir = (listing != null ? listing : pool.submit(() -> list(path))).join();
+        var subdirectories = new ArrayDeque<ForkJoinTask<Listing>>();
+        for (int i = 0; i < dir.children.size(); ++i) {
+            if (isDirectory(dir.attributes.get(i))) {
+                var child = dir.children.get(i);
+                subdirectories.add(pool.submit(() -> list(child)));
+            }
+        }
+        for (int i = 0; i < dir.children.size(); ++i) {
+            var childAttrs = dir.attributes.get(i);
+            visit(dir.children.get(i), childAttrs, isDirectory(childAttrs) ? subdirectories.remove() : null);
+        }
+        if (dir.failed) {
+            enqueue(ForkJoinTask.adapt(() -> failed(path)));
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isDirectory(BasicFileAttributes attrs) {
+        return attrs != null && attrs.isDirectory();
+    }
+
+    private static Listing list(Path dir) {
+        var listing = new Listing();
+        try (var stream = Files.newDirectoryStream(dir)) {
+            for (var child : stream) {
+                listing.children.add(child);
+                listing.attributes.add(attributes(child));
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            listing.failed = true;
+        }
+        return listing;
+    }
+
+    private void enqueue(ForkJoinTask<List<FileHash>> task) throws IOException {
+        while (pending.size() >= window) {
+            writeNext();
+        }
+        pending.add(pool.submit(task));
+    }
+
+    private void writeNext() throws IOException {
+        for (var entry : pending.remove().join()) {
+            visitor.write(entry.hash, entry.file);
+        }
+    }
+
+    private List<FileHash> failed(Path file) {
+        visitor.failed();
+        return List.of(new FileHash(0, file.toString()));
+    }
+}
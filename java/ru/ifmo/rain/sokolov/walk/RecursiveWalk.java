@@ -1,19 +1,32 @@
 package ru.ifmo.rain.sokolov.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 public class RecursiveWalk {
     private final Path inputPath;
     private final Path outputPath;
+    private final WalkOptions options;
+    private final HashCounter counter;
+    private final HashCache cache;
 
     public RecursiveWalk(String input, String output) throws PathException {
+        this(input, output, new WalkOptions());
+    }
+
+    RecursiveWalk(String input, String output, WalkOptions options) throws PathException {
+        this.options = options;
         inputPath = getPath(input, "Invalid input path: ");
         outputPath = getPath(output, "Invalid output path: ");
+        counter = new HashCounter(options.hash, options.mapThreshold, options.mapWindow, options.treeChunk,
+                options.direct);
+        cache = options.cache != null
+                ? HashCache.load(getPath(options.cache, "Invalid cache path: "), counter.description())
+                : null;
         Path parent = outputPath.getParent();
         if (parent != null && Files.notExists(parent)) {
             try {
@@ -32,8 +45,7 @@ public class RecursiveWalk {
         }
     }
 
-    private void walker(String path, BufferedWriter writer) throws IOException {
-        var visitor = new Visitor(writer);
+    private void walker(String path, Visitor visitor) throws IOException {
         try {
             Files.walkFileTree(Paths.get(path), visitor);
         } catch (InvalidPathException e) {
@@ -41,37 +53,152 @@ public class RecursiveWalk {
         }
     }
 
-    private void walk() throws WalkException {
+    private Snapshot loadSnapshot() throws WalkException {
+        var path = getPath(options.diff, "Invalid snapshot path: ");
+        if (path.toAbsolutePath().normalize().equals(outputPath.toAbsolutePath().normalize())) {
+            throw new WalkException("Snapshot to compare with should differ from the output file");
+        }
+        try {
+            return Snapshot.load(path, counter.function().digits(), counter.treeChunk());
+        } catch (IOException | SecurityException e) {
+            throw new WalkException("Failed to read snapshot (" + e.getMessage() + ")");
+        }
+    }
+
+    private ResultWriter openWriter(Snapshot snapshot) throws IOException {
+        var writer = ResultWriter.open(outputPath, options.binary, counter);
+        if (options.merkle != null) {
+            writer = new MerkleWriter(writer, options.hash, getPath(options.merkle, "Invalid merkle tree path: "));
+        }
+        if (snapshot != null) {
+            writer = new DiffWriter(writer, snapshot, counter.function().digits(), System.out);
+        }
+        return writer;
+    }
 
-        try (var reader = Files.newBufferedReader(inputPath)) {
-            try (var writer = Files.newBufferedWriter(outputPath)) {
-                try {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        try {
-                            walker(line, writer);
-                        } catch (IOException e) {
-                            System.err.println("Failed write to \\" + outputPath);
+    private WalkStats startStats() {
+        return options.hasStats() ? WalkStats.start(options.progress, options.slow) : null;
+    }
+
+    private List<String> readRoots() throws WalkException {
+        try {
+            return Files.readAllLines(inputPath);
+        } catch (IOException | SecurityException e) {
+            throw new WalkException("Failed to read input file " + e.getMessage() + ")");
+        }
+    }
+
+    private void walk() throws WalkException {
+        var roots = readRoots();
+        var memo = FileMemo.forRoots(roots, options.hardLinks);
+        var snapshot = options.diff != null ? loadSnapshot() : null;
+        try (var stats = startStats();
+             var writer = openWriter(snapshot)) {
+            var archives = options.archives ? new ArchiveWalk(counter, stats) : null;
+            var visitor = new Visitor(writer, counter, cache, memo, archives, stats);
+            var asyncWalk = options.async > 0
+                    ? new AsyncWalk(visitor, options.hash, cache, memo, options.async)
+                    : null;
+            try (var parallelWalk = options.isParallel() ? new ParallelWalk(visitor, options.parallelism) : null) {
+                for (var root : roots) {
+                    try {
+                        if (asyncWalk != null) {
+                            asyncWalk.walk(root);
+                        } else if (parallelWalk != null) {
+                            parallelWalk.walk(root);
+                        } else {
+                            walker(root, visitor);
                         }
+                    } catch (IOException e) {
+                        System.err.println("Failed write to \\" + outputPath);
+                    }
+                }
+                if (asyncWalk != null) {
+                    try {
+                        asyncWalk.finish();
+                    } catch (IOException e) {
+                        System.err.println("Failed write to \\" + outputPath);
                     }
-                } catch (IOException e) {
-                    throw new WalkException("Failed to read file from \\" + inputPath);
                 }
-            } catch (IOException | SecurityException e) {
-                throw new WalkException("Failed to open output file " + e.getMessage() + ")");
             }
         } catch (IOException | SecurityException e) {
-            throw new WalkException("Failed to open input file " + e.getMessage() + ")");
+            throw new WalkException("Failed to open output file " + e.getMessage() + ")");
+        }
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Failed to save hash cache (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    private void duplicates() throws WalkException {
+        var roots = readRoots();
+        var memo = FileMemo.forRoots(roots, options.hardLinks);
+        try (var stats = startStats();
+             var writer = Files.newBufferedWriter(outputPath)) {
+            var finder = new DuplicateFinder(writer, counter, cache, memo, stats, options.isParallel());
+            for (var root : roots) {
+                finder.add(root);
+            }
+            finder.write();
+        } catch (IOException | SecurityException e) {
+            throw new WalkException("Failed to find duplicates (" + e.getMessage() + ")");
+        }
+    }
+
+    private void merkleDiff() throws WalkException {
+        try (var writer = Files.newBufferedWriter(outputPath)) {
+            var before = MerkleTree.load(getPath(options.merkleDiff, "Invalid merkle tree path: "));
+            MerkleTree.diff(before, MerkleTree.load(inputPath), writer);
+        } catch (IOException | SecurityException e) {
+            throw new WalkException("Failed to compare merkle trees (" + e.getMessage() + ")");
+        }
+    }
+
+    private void toText() throws WalkException {
+        try {
+            BinaryResultReader.toText(inputPath, outputPath);
+        } catch (IOException | SecurityException e) {
+            throw new WalkException("Failed to convert binary output (" + e.getMessage() + ")");
+        }
+    }
+
+    private void watch() throws WalkException {
+        var roots = readRoots();
+        var memo = FileMemo.forRoots(roots, options.hardLinks);
+        try (var stats = startStats();
+             var watchWalk = new WatchWalk(outputPath, counter, cache, memo, stats, options.binary)) {
+            watchWalk.run(roots);
+        } catch (IOException e) {
+            throw new WalkException("Failed to watch files (" + e.getMessage() + ")");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("Invalid arguments\nWrong arguments: <input file> <output file>");
+        WalkOptions options;
+        try {
+            options = WalkOptions.parse(args);
+        } catch (WalkException e) {
+            System.err.println(e.getMessage() + "\n" + WalkOptions.USAGE);
             return;
         }
         try {
-            new RecursiveWalk(args[0], args[1]).walk();
+            var walk = new RecursiveWalk(options.input, options.output, options);
+            if (options.merkleDiff != null) {
+                walk.merkleDiff();
+            } else if (options.toText) {
+                walk.toText();
+            } else if (options.duplicates) {
+                walk.duplicates();
+            } else if (options.watch) {
+                walk.watch();
+            } else {
+                walk.walk();
+            }
         } catch (WalkException | PathException e) {
             System.err.println(e.getMessage());
         }
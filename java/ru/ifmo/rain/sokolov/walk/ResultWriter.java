@@ -0,0 +1,17 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+interface ResultWriter extends Closeable {
+    void write(long hash, String file) throws IOException;
+
+    static ResultWriter open(Path path, boolean binary, HashCounter counter) throws IOException {
+        int digits = counter.function().digits();
+        return binary
+                ? new BinaryResultWriter(Files.newOutputStream(path), digits, counter.treeChunk())
+                : new TextResultWriter(Files.newBufferedWriter(path), digits, counter.treeChunk());
+    }
+}
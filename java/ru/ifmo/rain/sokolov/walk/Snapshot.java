@@ -0,0 +1,158 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class Snapshot {
+    private static final long FNV_64_INIT = 0xcbf29ce484222325L;
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
+    private final Path path;
+    private final int digits;
+    private final long treeChunk;
+    private long[] keys = new long[1 << 10];
+    private long[] hashes = new long[keys.length];
+    private boolean[] seen = new boolean[keys.length];
+    private int size = 0;
+
+    interface Entries {
+        void accept(long hash, String file) throws IOException;
+    }
+
+    private Snapshot(Path path, int digits, long treeChunk) {
+        this.path = path;
+        this.digits = digits;
+        this.treeChunk = treeChunk;
+    }
+
+    static Snapshot load(Path path, int digits, long treeChunk) throws IOException {
+        var snapshot = new Snapshot(path, digits, treeChunk);
+        snapshot.forEach((hash, file) -> snapshot.put(key(file), hash));
+        return snapshot;
+    }
+
+    void forEach(Entries entries) throws IOException {
+        try (var in = new BufferedInputStream(Files.newInputStream(path))) {
+            in.mark(Integer.BYTES);
+            var head = in.readNBytes(Integer.BYTES);
+            in.reset();
+            if (head.length == Integer.BYTES && ByteBuffer.wrap(head).getInt() == BinaryResultWriter.MAGIC) {
+                readBinary(in, entries);
+            } else {
+                readText(in, entries);
+            }
+        }
+    }
+
+    private void readBinary(InputStream in, Entries entries) throws IOException {
+        var reader = new BinaryResultReader(in);
+        check(reader.digits(), reader.treeChunk());
+        while (reader.next()) {
+            entries.accept(reader.hash(), reader.file());
+        }
+    }
+
+    private void readText(InputStream in, Entries entries) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        var line = reader.readLine();
+        long chunk = 0;
+        if (line != null && line.startsWith(TextResultWriter.TREE_HEADER)) {
+            try {
+                chunk = Long.parseLong(line.substring(TextResultWriter.TREE_HEADER.length()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid tree hash header: " + line);
+            }
+            line = reader.readLine();
+        }
+        check(line == null ? digits : line.indexOf(' '), chunk);
+        for (; line != null; line = reader.readLine()) {
+            if (line.length() <= digits || line.charAt(digits) != ' ') {
+                throw new IOException("Invalid output line: " + line);
+            }
+            try {
+                entries.accept(Long.parseUnsignedLong(line, 0, digits, 16), line.substring(digits + 1));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid output line: " + line);
+            }
+        }
+    }
+
+    private void check(int digits, long treeChunk) throws IOException {
+        if (digits != this.digits || treeChunk != this.treeChunk) {
+            throw new IOException("Snapshot " + path + " was written with another hash function or tree chunk");
+        }
+    }
+
+    static long key(String file) {
+        long key = FNV_64_INIT;
+        for (int i = 0; i < file.length(); ++i) {
+            key = (key ^ file.charAt(i)) * FNV_64_PRIME;
+        }
+        return key == 0 ? 1 : key;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ key >>> 32) * 0x9e3779b9 & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = slot + 1 & mask;
+        }
+        return slot;
+    }
+
+    private void put(long key, long hash) {
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int slot = slot(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            hashes[slot] = hash;
+            size++;
+        }
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldHashes = hashes;
+        keys = new long[oldKeys.length * 2];
+        hashes = new long[keys.length];
+        seen = new boolean[keys.length];
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Marks the file as present in the new walk and returns its slot, or {@code -1} if the snapshot has no such file.
+     */
+    int visit(String file) {
+        int slot = slot(key(file));
+        if (keys[slot] == 0) {
+            return -1;
+        }
+        seen[slot] = true;
+        return slot;
+    }
+
+    long hash(int slot) {
+        return hashes[slot];
+    }
+
+    void forEachUnseen(Entries entries) throws IOException {
+        forEach((hash, file) -> {
+            int slot = slot(key(file));
+            if (!seen[slot]) {
+                seen[slot] = true;
+                entries.accept(hash, file);
+            }
+        });
+    }
+}
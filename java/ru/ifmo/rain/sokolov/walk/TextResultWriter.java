@@ -0,0 +1,41 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+class TextResultWriter implements ResultWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    static final String TREE_HEADER = "# tree-hash chunk ";
+
+    private final BufferedWriter writer;
+    private final char[] prefix;
+
+    TextResultWriter(BufferedWriter writer, int digits) {
+        this.writer = writer;
+        this.prefix = new char[digits + 1];
+        prefix[digits] = ' ';
+    }
+
+    TextResultWriter(BufferedWriter writer, int digits, long treeChunk) throws IOException {
+        this(writer, digits);
+        if (treeChunk > 0) {
+            writer.write(TREE_HEADER + treeChunk + LINE_SEPARATOR);
+        }
+    }
+
+    @Override
+    public void write(long hash, String file) throws IOException {
+        for (int i = prefix.length - 2; i >= 0; --i, hash >>>= 4) {
+            prefix[i] = HEX[(int) hash & 0xf];
+        }
+        writer.write(prefix);
+        writer.write(file);
+        writer.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
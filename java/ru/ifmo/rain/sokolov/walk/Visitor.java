@@ -6,29 +6,115 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Visitor extends SimpleFileVisitor<Path> {
-    private BufferedWriter writer;
-    private static final String format = "%08x %s" + System.lineSeparator();
+    private final ResultWriter writer;
+    private final HashCounter counter;
+    private final HashCache cache;
+    private final FileMemo memo;
+    private final ArchiveWalk archives;
+    private final WalkStats stats;
 
     public Visitor(BufferedWriter writer) {
+        this(writer, new HashCounter());
+    }
+
+    private Visitor(BufferedWriter writer, HashCounter counter) {
+        this(new TextResultWriter(writer, counter.function().digits()), counter, null);
+    }
+
+    Visitor(ResultWriter writer, HashCounter counter, HashCache cache) {
+        this(writer, counter, cache, null, null, null);
+    }
+
+    Visitor(ResultWriter writer, HashCounter counter, HashCache cache, FileMemo memo, ArchiveWalk archives,
+            WalkStats stats) {
         this.writer = writer;
+        this.counter = counter;
+        this.cache = cache;
+        this.memo = memo;
+        this.archives = archives;
+        this.stats = stats;
+    }
+
+    void write(long hash, String file) throws IOException {
+        writer.write(hash, file);
+    }
+
+    long hash(Path file, BasicFileAttributes attrs) {
+        try {
+            return checkedHash(file, attrs);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    long checkedHash(Path file, BasicFileAttributes attrs) throws IOException {
+        return timed(file, attrs, () -> untimedHash(file, attrs));
+    }
+
+    long timed(Path file, BasicFileAttributes attrs, FileMemo.Computation compute) throws IOException {
+        return stats != null ? stats.time(file.toString(), attrs.size(), compute) : compute.hash();
     }
 
-    void write(int hash, String file) throws IOException {
-        writer.write(String.format(format, hash, file));
+    void hashed(Path file, BasicFileAttributes attrs, long nanos, boolean failed) {
+        if (stats != null) {
+            stats.hashed(file.toString(), attrs.size(), nanos, failed);
+        }
+    }
+
+    void failed() {
+        if (stats != null) {
+            stats.failed();
+        }
+    }
+
+    private long untimedHash(Path file, BasicFileAttributes attrs) throws IOException {
+        return memo != null ? memo.hash(file, attrs, () -> compute(file, attrs)) : compute(file, attrs);
+    }
+
+    private long compute(Path file, BasicFileAttributes attrs) throws IOException {
+        return cache != null ? cache.hash(file, attrs, counter) : counter.checkedHash(file);
+    }
+
+    List<FileHash> archiveEntries(Path file, BasicFileAttributes attrs) {
+        return archives != null && attrs.isRegularFile() && ArchiveWalk.isArchive(file)
+                ? archives.hash(file)
+                : List.of();
+    }
+
+    List<FileHash> hashWithEntries(Path file, BasicFileAttributes attrs) {
+        var entries = archiveEntries(file, attrs);
+        var own = new FileHash(hash(file, attrs), file.toString());
+        if (entries.isEmpty()) {
+            return List.of(own);
+        }
+        var result = new ArrayList<FileHash>(entries.size() + 1);
+        result.add(own);
+        result.addAll(entries);
+        return result;
     }
 
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        write(HashCounter.getFNV1Hash(file), file.toString());
+        for (var entry : hashWithEntries(file, attrs)) {
+            write(entry.hash, entry.file);
+        }
         return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        failed();
         write(0, file.toString());
         return FileVisitResult.CONTINUE;
     }
 
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        return exc != null ? visitFileFailed(dir, exc) : FileVisitResult.CONTINUE;
+    }
+
 }
\ No newline at end of file
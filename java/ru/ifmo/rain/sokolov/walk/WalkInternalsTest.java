@@ -0,0 +1,191 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class WalkInternalsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static HashCounter counter(HashFunction function) {
+        return new HashCounter(function, HashCounter.DEFAULT_MAP_THRESHOLD, HashCounter.DEFAULT_MAP_WINDOW, 0, false);
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    public void hashersKeepBufferOrder() {
+        var bytes = new byte[1001];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) (i * 31);
+        }
+        for (var function : HashFunction.ALL) {
+            var expected = function.newHasher();
+            expected.update(ByteBuffer.wrap(bytes));
+
+            var hasher = function.newHasher();
+            var buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(1);
+            hasher.update(ByteBuffer.wrap(bytes, 0, 1));
+            hasher.update(buffer);
+            assertEquals(function.name(), ByteOrder.LITTLE_ENDIAN, buffer.order());
+            assertEquals(function.name(), bytes.length, buffer.position());
+            assertEquals(function.name(), expected.getValue(), hasher.getValue());
+        }
+    }
+
+    @Test
+    public void statsCountFailuresExplicitly() throws IOException {
+        var empty = folder.newFile().toPath();
+        try (var stats = WalkStats.start(0, -1)) {
+            var visitor = new Visitor(null, counter(new Crc32cHash()), null, null, null, stats);
+            assertEquals(0, visitor.hash(empty, attributes(empty)));
+            assertEquals(1, stats.getFiles());
+            assertEquals(0, stats.getErrors());
+
+            var missing = folder.newFile().toPath();
+            var attrs = attributes(missing);
+            Files.delete(missing);
+            assertEquals(0, visitor.hash(missing, attrs));
+            assertEquals(2, stats.getFiles());
+            assertEquals(1, stats.getErrors());
+        }
+    }
+
+    @Test
+    public void latencyHistogram() {
+        try (var stats = WalkStats.start(0, -1)) {
+            stats.hashed("a", 0, 0, false);
+            stats.hashed("b", 0, 1_999, false);
+            stats.hashed("c", 0, 2_000, false);
+            stats.hashed("d", 0, 1_000_000, false);
+            var histogram = stats.getLatencyHistogram();
+            assertEquals(10, histogram.length);
+            assertEquals(2, histogram[0]);
+            assertEquals(1, histogram[1]);
+            assertEquals(1, histogram[9]);
+        }
+    }
+
+    @Test
+    public void statsCountArchiveEntries() throws IOException {
+        var zip = folder.getRoot().toPath().resolve("entries.zip");
+        try (var out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (var name : List.of("a", "b", "dir/c")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.getBytes());
+            }
+        }
+        try (var stats = WalkStats.start(0, -1)) {
+            var counter = counter(new Fnv1Hash());
+            var visitor = new Visitor(null, counter, null, null, new ArchiveWalk(counter, stats), stats);
+            assertEquals(4, visitor.hashWithEntries(zip, attributes(zip)).size());
+            assertEquals(4, stats.getFiles());
+            assertEquals(Files.size(zip) + 7, stats.getBytes());
+        }
+    }
+
+    @Test
+    public void statsInDuplicates() throws IOException {
+        var root = folder.newFolder().toPath();
+        Files.writeString(root.resolve("a"), "same");
+        Files.writeString(root.resolve("b"), "same");
+        Files.writeString(root.resolve("c"), "unique");
+        var out = new StringWriter();
+        try (var stats = WalkStats.start(0, -1); var writer = new BufferedWriter(out)) {
+            var finder = new DuplicateFinder(writer, counter(new Fnv1Hash()), null, null, stats, false);
+            finder.add(root.toString());
+            finder.write();
+            assertEquals(2, stats.getFiles());
+            assertEquals(8, stats.getBytes());
+        }
+        assertEquals(3, out.toString().lines().count());
+    }
+
+    @Test
+    public void memoHashesOnceAcrossWorkers() throws Exception {
+        var file = folder.newFile().toPath();
+        var attrs = attributes(file);
+        var memo = FileMemo.forRoots(List.of(folder.getRoot().toString()), true);
+        var computed = new AtomicInteger();
+        var pool = new ForkJoinPool(4);
+        try {
+            var hashes = pool.submit(() -> IntStream.range(0, 64).parallel().mapToLong(i -> {
+                try {
+                    return memo.hash(file, attrs, () -> {
+                        computed.incrementAndGet();
+                        LockSupport.parkNanos(50_000_000);
+                        return 42;
+                    });
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }).toArray()).get();
+            assertTrue(IntStream.range(0, hashes.length).allMatch(i -> hashes[i] == 42));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, computed.get());
+        assertEquals(Long.valueOf(42), memo.lookup(file, attrs));
+    }
+
+    @Test
+    public void memoKeepsFailures() throws IOException {
+        var file = folder.newFile().toPath();
+        var attrs = attributes(file);
+        var memo = FileMemo.forRoots(List.of(folder.getRoot().toString()), true);
+        for (int i = 0; i < 2; ++i) {
+            try {
+                memo.hash(file, attrs, () -> {
+                    throw new IOException("unreadable");
+                });
+                fail("Failure is not reported");
+            } catch (IOException e) {
+                assertEquals("unreadable", e.getMessage());
+            }
+        }
+        assertNull(memo.lookup(file, attrs));
+    }
+
+    @Test
+    public void rejectsIgnoredOptions() {
+        for (var options : List.of(
+                List.of("--watch", "--parallel", "2"),
+                List.of("--watch", "--async", "2"),
+                List.of("--watch", "--archives"),
+                List.of("--watch", "--merkle", "tree"),
+                List.of("--watch", "--diff", "old"),
+                List.of("--async", "2", "--parallel", "0"))) {
+            var args = new ArrayList<>(options);
+            args.addAll(List.of("input", "output"));
+            try {
+                WalkOptions.parse(args.toArray(new String[0]));
+                fail("Accepted " + options);
+            } catch (WalkException ignored) {
+            }
+        }
+        assertTrue(WalkOptions.parse(new String[]{"--watch", "--hash", "crc32c", "input", "output"}).watch);
+    }
+}
@@ -0,0 +1,310 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class WalkModesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private byte[] big;
+
+    @Before
+    public void before() throws IOException {
+        root = folder.newFolder("root").toPath();
+        Files.createDirectories(root.resolve("sub/deeper"));
+        big = new byte[300_000];
+        new Random(2019).nextBytes(big);
+        Files.write(root.resolve("big"), big);
+        Files.write(root.resolve("sub/big-copy"), big);
+        Files.writeString(root.resolve("a"), "same\n");
+        Files.writeString(root.resolve("b"), "same\n");
+        Files.writeString(root.resolve("sub/c"), "uniq\n");
+        Files.createFile(root.resolve("empty"));
+        Files.createFile(root.resolve("sub/deeper/empty"));
+        try (var zip = new ZipOutputStream(Files.newOutputStream(root.resolve("files.zip")))) {
+            zip.putNextEntry(new ZipEntry("big"));
+            zip.write(big);
+            zip.putNextEntry(new ZipEntry("dir/a"));
+            zip.write("same\n".getBytes());
+            zip.putNextEntry(new ZipEntry("empty"));
+        }
+    }
+
+    private List<String> run(List<String> roots, String... options) throws IOException {
+        var input = folder.newFile().toPath();
+        var output = folder.getRoot().toPath().resolve("output-" + System.nanoTime());
+        Files.write(input, roots);
+        var args = Stream.concat(Arrays.stream(options), Stream.of(input.toString(), output.toString()))
+                .toArray(String[]::new);
+        RecursiveWalk.main(args);
+        assertTrue("No output for " + Arrays.toString(options), Files.exists(output));
+        return Files.readAllLines(output);
+    }
+
+    private List<String> run(String... options) throws IOException {
+        return run(List.of(root.toString()), options);
+    }
+
+    private static Map<String, String> hashes(List<String> lines) {
+        return lines.stream()
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .collect(Collectors.toMap(line -> line.substring(line.indexOf(' ') + 1),
+                        line -> line.substring(0, line.indexOf(' ')), (a, b) -> a, TreeMap::new));
+    }
+
+    private String file(String name) {
+        return root.resolve(name).toString();
+    }
+
+    private static List<Set<String>> clusters(List<String> lines) {
+        var result = new ArrayList<Set<String>>();
+        var current = new ArrayList<String>();
+        for (var line : lines) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                var files = new TreeSet<String>();
+                for (var member : current) {
+                    assertTrue("Listed twice: " + member, files.add(member.substring(member.indexOf(' ') + 1)));
+                }
+                result.add(files);
+                current.clear();
+            } else {
+                current.add(line);
+            }
+        }
+        assertTrue(current.isEmpty());
+        return result;
+    }
+
+    @Test
+    public void modesMatchSequentialWalk() throws IOException {
+        var expected = run();
+        assertEquals(8, expected.size());
+        for (var options : List.of(
+                new String[]{"--parallel", "4"},
+                new String[]{"--parallel", "0", "--hard-links"},
+                new String[]{"--async", "3"},
+                new String[]{"--async", "1", "--hard-links"},
+                new String[]{"--map-threshold", "0", "--map-window", "65536"},
+                new String[]{"--direct"},
+                new String[]{"--stats"})) {
+            assertEquals(Arrays.toString(options), expected, run(options));
+        }
+    }
+
+    @Test
+    public void failuresMatchSequentialWalk() throws IOException {
+        var roots = List.of(file("missing"), "\0", root.resolve("sub").toString(), file("sub/missing"));
+        var expected = run(roots);
+        assertEquals(2 + 3 + 1, expected.size());
+        assertEquals(expected, run(roots, "--parallel", "2"));
+        assertEquals(expected, run(roots, "--async", "2"));
+    }
+
+    @Test
+    public void overlappingRootsInEveryMode() throws IOException {
+        var roots = List.of(root.toString(), root.resolve("sub").toString(), file("a"));
+        var expected = run(roots);
+        assertEquals(8 + 3 + 1, expected.size());
+        assertEquals(expected, run(roots, "--parallel", "4", "--hard-links"));
+        assertEquals(expected, run(roots, "--async", "2"));
+    }
+
+    @Test
+    public void cache() throws IOException {
+        var old = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        for (var name : List.of("a", "b", "big")) {
+            Files.setLastModifiedTime(root.resolve(name), old);
+        }
+        var cache = folder.getRoot().toPath().resolve("hashes.cache").toString();
+        var expected = run();
+        assertEquals(expected, run("--cache", cache));
+        assertEquals(expected, run("--cache", cache));
+
+        // Same size and modification time, so the stale hash is taken from the cache
+        Files.writeString(root.resolve("a"), "diff\n");
+        Files.setLastModifiedTime(root.resolve("a"), old);
+        assertEquals(expected, run("--cache", cache));
+
+        Files.setLastModifiedTime(root.resolve("a"), FileTime.fromMillis(old.toMillis() + 1000));
+        var changed = run("--cache", cache);
+        assertNotEquals(expected, changed);
+        assertEquals(run(), changed);
+        assertEquals(run("--hash", "crc32c"), run("--hash", "crc32c", "--cache", cache));
+    }
+
+    private static void awaitOutput(Path output, Map<String, String> expected) throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            if (Files.exists(output) && expected.equals(hashes(Files.readAllLines(output)))) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(expected, hashes(Files.readAllLines(output)));
+    }
+
+    @Test
+    public void watch() throws Exception {
+        var input = folder.newFile().toPath();
+        var output = folder.getRoot().toPath().resolve("watched");
+        Files.write(input, List.of(root.toString()));
+        var thread = new Thread(() -> RecursiveWalk.main(new String[]{"--watch", input.toString(), output.toString()}));
+        thread.start();
+        try {
+            awaitOutput(output, hashes(run()));
+            Files.writeString(root.resolve("sub/c"), "changed\n");
+            Files.writeString(root.resolve("sub/d"), "new\n");
+            Files.delete(root.resolve("b"));
+            awaitOutput(output, hashes(run()));
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void duplicates() throws IOException {
+        var walk = hashes(run());
+        var lines = run(List.of(root.toString(), root.resolve("sub").toString()), "--duplicates");
+        var expected = List.of(
+                Set.of(file("big"), file("sub/big-copy")),
+                Set.of(file("a"), file("b")),
+                Set.of(file("empty"), file("sub/deeper/empty")));
+        assertEquals(expected, clusters(lines));
+        for (var entry : hashes(lines).entrySet()) {
+            assertEquals(entry.getKey(), walk.get(entry.getKey()), entry.getValue());
+        }
+        assertEquals(lines, run(List.of(root.toString(), root.resolve("sub").toString()),
+                "--duplicates", "--parallel", "2", "--hard-links"));
+    }
+
+    @Test
+    public void duplicateEmptyFilesWithZeroHash() throws IOException {
+        var lines = run("--duplicates", "--hash", "crc32c");
+        assertTrue(lines.toString(), lines.contains("00000000 " + file("empty")));
+        assertEquals(3, clusters(lines).size());
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        for (var options : List.of(new String[0], new String[]{"--tree-chunk", "65536", "--hash", "crc32c"})) {
+            var expected = run(options);
+            var input = folder.newFile().toPath();
+            Files.write(input, List.of(root.toString()));
+            var binary = folder.getRoot().toPath().resolve("binary-" + options.length);
+            var text = folder.getRoot().toPath().resolve("text-" + options.length);
+            var args = new ArrayList<>(List.of(options));
+            args.addAll(List.of("--binary", input.toString(), binary.toString()));
+            RecursiveWalk.main(args.toArray(new String[0]));
+            RecursiveWalk.main(new String[]{"--to-text", binary.toString(), text.toString()});
+            assertEquals(expected, Files.readAllLines(text));
+        }
+    }
+
+    @Test
+    public void merkle() throws IOException {
+        var before = folder.getRoot().toPath().resolve("before.merkle");
+        var after = folder.getRoot().toPath().resolve("after.merkle");
+        assertEquals(run(), run("--merkle", before.toString()));
+        var tree = Files.readAllLines(before);
+        assertEquals("# merkle fnv1", tree.get(0));
+        assertTrue(tree.stream().anyMatch(line -> line.startsWith("d ") && line.endsWith(" " + file("sub"))));
+        assertTrue(tree.contains("f " + hashes(run()).get(file("sub/c")) + " " + file("sub/c")));
+
+        Files.writeString(root.resolve("sub/c"), "changed\n");
+        run("--merkle", after.toString());
+        var diff = folder.getRoot().toPath().resolve("merkle-diff");
+        RecursiveWalk.main(new String[]{"--merkle-diff", before.toString(), after.toString(), diff.toString()});
+        assertEquals(List.of("M " + hashes(run()).get(file("sub/c")) + " " + file("sub/c")), Files.readAllLines(diff));
+    }
+
+    @Test
+    public void treeHash() throws IOException {
+        var plain = hashes(run());
+        var lines = run("--tree-chunk", "65536");
+        assertEquals("# tree-hash chunk 65536", lines.get(0));
+        var tree = hashes(lines);
+        assertNotEquals(plain.get(file("big")), tree.get(file("big")));
+        assertEquals(tree.get(file("big")), tree.get(file("sub/big-copy")));
+        assertEquals(lines, run("--tree-chunk", "65536", "--parallel", "3"));
+        assertEquals(lines, run("--tree-chunk", "65536", "--hard-links"));
+        assertNotEquals(lines, run("--tree-chunk", "131072"));
+    }
+
+    @Test
+    public void duplicatesUseTreeHashes() throws IOException {
+        var walk = hashes(run("--tree-chunk", "65536"));
+        var lines = run("--duplicates", "--tree-chunk", "65536");
+        assertEquals("# tree-hash chunk 65536", lines.get(0));
+        assertEquals(3, clusters(lines).size());
+        for (var entry : hashes(lines).entrySet()) {
+            assertEquals(entry.getKey(), walk.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    public void archives() throws IOException {
+        for (var options : List.of(new String[0], new String[]{"--tree-chunk", "65536"})) {
+            var plain = hashes(run(options));
+            var withEntries = new ArrayList<>(List.of(options));
+            withEntries.add("--archives");
+            var lines = run(withEntries.toArray(new String[0]));
+            var hashes = hashes(lines);
+            var zip = file("files.zip") + ArchiveWalk.SEPARATOR;
+            assertEquals(plain.get(file("big")), hashes.get(zip + "/big"));
+            assertEquals(plain.get(file("a")), hashes.get(zip + "/dir/a"));
+            assertEquals(plain.get(file("empty")), hashes.get(zip + "/empty"));
+            assertEquals(plain.size() + 3, hashes.size());
+            var parallel = new ArrayList<>(withEntries);
+            parallel.addAll(List.of("--parallel", "2"));
+            assertEquals(lines, run(parallel.toArray(new String[0])));
+        }
+    }
+
+    @Test
+    public void diff() throws IOException {
+        var old = folder.getRoot().toPath().resolve("old");
+        Files.write(old, run());
+        var before = hashes(Files.readAllLines(old));
+        Files.writeString(root.resolve("sub/c"), "changed\n");
+        Files.writeString(root.resolve("sub/d"), "new\n");
+        Files.delete(root.resolve("b"));
+
+        var changes = new ByteArrayOutputStream();
+        var stdout = System.out;
+        System.setOut(new PrintStream(changes, true));
+        List<String> lines;
+        try {
+            lines = run("--diff", old.toString());
+        } finally {
+            System.setOut(stdout);
+        }
+        assertEquals(run(), lines);
+        var after = hashes(lines);
+        assertEquals(Set.of(
+                "M " + after.get(file("sub/c")) + " " + file("sub/c"),
+                "A " + after.get(file("sub/d")) + " " + file("sub/d"),
+                "D " + before.get(file("b")) + " " + file("b")),
+                changes.toString().lines().collect(Collectors.toSet()));
+    }
+}
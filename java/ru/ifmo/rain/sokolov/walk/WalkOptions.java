@@ -0,0 +1,188 @@
+package ru.ifmo.rain.sokolov.walk;
+
+class WalkOptions {
+    static final String USAGE = "Wrong arguments: [options] <input file> <output file>\n" +
+            "       --to-text <binary output> <text output>\n" +
+            "       --merkle-diff <old tree> <new tree> <diff output>\n" +
+            "Options:\n" +
+            "  --parallel <threads>     walk and hash in parallel, 0 for all processors\n" +
+            "  --map-threshold <bytes>  memory-map files of at least this size\n" +
+            "  --map-window <bytes>     size of one mapped window\n" +
+            "  --cache <file>           reuse hashes of unchanged files from this cache\n" +
+            "  --hash <function>        fnv1 (default), fnv1a64 or crc32c\n" +
+            "  --watch                  keep the output up to date and print changes until interrupted\n" +
+            "  --duplicates             write clusters of files with equal contents instead of all hashes\n" +
+            "  --async <reads>          hash with asynchronous reads, keeping up to this many files in flight\n" +
+            "  --binary                 write front-coded binary output instead of text\n" +
+            "  --merkle <file>          also write the merkle tree of all walked directories\n" +
+            "  --tree-chunk <bytes>     hash chunks of this size in parallel and combine them into a root hash\n" +
+            "  --hard-links             read every file at most once, even if it has several links\n" +
+            "  --archives               also hash entries of zip and jar files as archive!/entry\n" +
+            "  --direct                 read files with O_DIRECT, bypassing the page cache where supported\n" +
+            "  --stats                  publish file, byte, error and latency counters over JMX\n" +
+            "  --progress <seconds>     print progress to stderr at this interval, implies --stats\n" +
+            "  --slow <millis>          log files hashed for at least this long to stderr, implies --stats\n" +
+            "  --diff <old output>      print files added, modified and deleted since the old output";
+
+    String input;
+    String output;
+    int parallelism = -1;
+    long mapThreshold = HashCounter.DEFAULT_MAP_THRESHOLD;
+    long mapWindow = HashCounter.DEFAULT_MAP_WINDOW;
+    String cache;
+    HashFunction hash = new Fnv1Hash();
+    boolean watch;
+    boolean duplicates;
+    int async;
+    boolean binary;
+    boolean toText;
+    String merkle;
+    String merkleDiff;
+    long treeChunk;
+    boolean hardLinks;
+    boolean archives;
+    boolean direct;
+    boolean stats;
+    long progress;
+    long slow = -1;
+    String diff;
+
+    boolean isParallel() {
+        return parallelism >= 0;
+    }
+
+    boolean hasStats() {
+        return stats || progress > 0 || slow >= 0;
+    }
+
+    static WalkOptions parse(String[] args) throws WalkException {
+        if (args == null) {
+            throw new WalkException("Invalid arguments");
+        }
+        var options = new WalkOptions();
+        int i = 0;
+        for (; i < args.length && args[i] != null && args[i].startsWith("--"); ++i) {
+            switch (args[i]) {
+                case "--parallel":
+                    options.parallelism = intValue(args, ++i);
+                    break;
+                case "--map-threshold":
+                    options.mapThreshold = longValue(args, ++i);
+                    break;
+                case "--map-window":
+                    options.mapWindow = longValue(args, ++i);
+                    if (options.mapWindow < HashCounter.MIN_MAP_WINDOW || options.mapWindow > Integer.MAX_VALUE) {
+                        throw new WalkException("Map window should be in [" + HashCounter.MIN_MAP_WINDOW
+                                + ", " + Integer.MAX_VALUE + "]");
+                    }
+                    break;
+                case "--cache":
+                    options.cache = value(args, ++i);
+                    break;
+                case "--hash":
+                    options.hash = HashFunction.forName(value(args, ++i));
+                    break;
+                case "--watch":
+                    options.watch = true;
+                    break;
+                case "--duplicates":
+                    options.duplicates = true;
+                    break;
+                case "--async":
+                    options.async = intValue(args, ++i);
+                    break;
+                case "--binary":
+                    options.binary = true;
+                    break;
+                case "--to-text":
+                    options.toText = true;
+                    break;
+                case "--merkle":
+                    options.merkle = value(args, ++i);
+                    break;
+                case "--merkle-diff":
+                    options.merkleDiff = value(args, ++i);
+                    break;
+                case "--tree-chunk":
+                    options.treeChunk = longValue(args, ++i);
+                    if (options.treeChunk < HashCounter.MIN_TREE_CHUNK) {
+                        throw new WalkException("Tree chunk should be at least " + HashCounter.MIN_TREE_CHUNK);
+                    }
+                    break;
+                case "--hard-links":
+                    options.hardLinks = true;
+                    break;
+                case "--archives":
+                    options.archives = true;
+                    break;
+                case "--direct":
+                    options.direct = true;
+                    break;
+                case "--stats":
+                    options.stats = true;
+                    break;
+                case "--progress":
+                    options.progress = longValue(args, ++i);
+                    if (options.progress == 0) {
+                        throw new WalkException("Progress interval should be positive");
+                    }
+                    break;
+                case "--slow":
+                    options.slow = longValue(args, ++i);
+                    break;
+                case "--diff":
+                    options.diff = value(args, ++i);
+                    break;
+                default:
+                    throw new WalkException("Unknown option: " + args[i]);
+            }
+        }
+        if (args.length - i != 2 || args[i] == null || args[i + 1] == null) {
+            throw new WalkException("Invalid arguments");
+        }
+        if (options.watch && (options.isParallel() || options.async > 0 || options.archives
+                || options.merkle != null || options.diff != null)) {
+            throw new WalkException("--watch cannot be combined with --parallel, --async, --archives, --merkle"
+                    + " or --diff");
+        }
+        if (options.async > 0 && options.isParallel()) {
+            throw new WalkException("--async cannot be combined with --parallel");
+        }
+        if (options.async > 0 && options.treeChunk > 0) {
+            throw new WalkException("--async cannot be combined with --tree-chunk");
+        }
+        if (options.direct && (options.async > 0 || options.treeChunk > 0)) {
+            throw new WalkException("--direct cannot be combined with --async or --tree-chunk");
+        }
+        options.input = args[i];
+        options.output = args[i + 1];
+        return options;
+    }
+
+    private static String value(String[] args, int i) throws WalkException {
+        if (i >= args.length || args[i] == null) {
+            throw new WalkException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static int intValue(String[] args, int i) throws WalkException {
+        long result = longValue(args, i);
+        if (result > Integer.MAX_VALUE) {
+            throw new WalkException("Too big value for " + args[i - 1]);
+        }
+        return (int) result;
+    }
+
+    private static long longValue(String[] args, int i) throws WalkException {
+        try {
+            long result = Long.parseLong(value(args, i));
+            if (result < 0) {
+                throw new WalkException("Negative value for " + args[i - 1]);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new WalkException("Invalid number for " + args[i - 1] + ": " + args[i]);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+class WalkStats implements WalkStatsMXBean, AutoCloseable {
+    private static final String OBJECT_NAME = "ru.ifmo.rain.sokolov.walk:type=WalkStats";
+    private static final int BUCKETS = 64;
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder[] latencies = new LongAdder[BUCKETS];
+    private final long start = System.nanoTime();
+    private final long slowNanos;
+    private final ScheduledExecutorService progress;
+    private ObjectName name;
+
+    private WalkStats(long progressSeconds, long slowMillis) {
+        for (int i = 0; i < BUCKETS; ++i) {
+            latencies[i] = new LongAdder();
+        }
+        slowNanos = slowMillis >= 0 ? TimeUnit.MILLISECONDS.toNanos(slowMillis) : Long.MAX_VALUE;
+        if (progressSeconds > 0) {
+            progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "walk-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.scheduleAtFixedRate(this::report, progressSeconds, progressSeconds, TimeUnit.SECONDS);
+        } else {
+            progress = null;
+        }
+    }
+
+    static WalkStats start(long progressSeconds, long slowMillis) {
+        var stats = new WalkStats(progressSeconds, slowMillis);
+        try {
+            var name = new ObjectName(OBJECT_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(stats, name);
+                stats.name = name;
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Failed to register walk statistics (" + e.getMessage() + ")");
+        }
+        return stats;
+    }
+
+    long time(String file, long size, FileMemo.Computation compute) throws IOException {
+        long start = System.nanoTime();
+        try {
+            long hash = compute.hash();
+            hashed(file, size, System.nanoTime() - start, false);
+            return hash;
+        } catch (IOException e) {
+            hashed(file, size, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    void hashed(String file, long size, long nanos, boolean failed) {
+        files.increment();
+        bytes.add(size);
+        if (failed) {
+            errors.increment();
+        }
+        latencies[Math.max(0, 63 - Long.numberOfLeadingZeros(nanos / 1000))].increment();
+        if (nanos >= slowNanos) {
+            System.err.printf("Slow file: %d ms %s%n", TimeUnit.NANOSECONDS.toMillis(nanos), file);
+        }
+    }
+
+    void failed() {
+        files.increment();
+        errors.increment();
+    }
+
+    private void report() {
+        long elapsed = getElapsedMillis();
+        System.err.printf("Progress: %d files, %d errors, %.1f MiB in %d s (%.1f files/s, %.1f MiB/s)%n",
+                getFiles(), getErrors(), getBytes() / 1048576.0, elapsed / 1000,
+                getFilesPerSecond(), getBytesPerSecond() / 1048576.0);
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return perSecond(getFiles());
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return perSecond(getBytes());
+    }
+
+    private double perSecond(long value) {
+        long elapsed = getElapsedMillis();
+        return elapsed > 0 ? value * 1000.0 / elapsed : 0;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        int used = BUCKETS;
+        while (used > 0 && latencies[used - 1].sum() == 0) {
+            --used;
+        }
+        var result = new long[used];
+        for (int i = 0; i < used; ++i) {
+            result[i] = latencies[i].sum();
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        if (progress != null) {
+            progress.shutdownNow();
+            report();
+        }
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                System.err.println("Failed to unregister walk statistics (" + e.getMessage() + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.ifmo.rain.sokolov.walk;
+
+public interface WalkStatsMXBean {
+    long getFiles();
+
+    long getBytes();
+
+    long getErrors();
+
+    long getElapsedMillis();
+
+    double getFilesPerSecond();
+
+    double getBytesPerSecond();
+
+    /**
+     * Number of hashed files by hash time, bucket {@code i} counts times in {@code [2^i, 2^(i+1))} microseconds,
+     * bucket {@code 0} also counts times under a microsecond.
+     */
+    long[] getLatencyHistogram();
+}
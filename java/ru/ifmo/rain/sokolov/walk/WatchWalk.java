@@ -0,0 +1,187 @@
+package ru.ifmo.rain.sokolov.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+class WatchWalk implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path outputPath;
+    private final HashCounter counter;
+    private final HashCache cache;
+    private final FileMemo memo;
+    private final WatchService watcher;
+    private final String format;
+    private final boolean binary;
+    private final Map<String, Long> hashes = new LinkedHashMap<>();
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<Path> walked = new HashSet<>();
+    private final Map<Path, Path> fileRoots = new HashMap<>();
+    private final Visitor recorder;
+    private boolean reporting = false;
+
+    WatchWalk(Path outputPath, HashCounter counter, HashCache cache, FileMemo memo, WalkStats stats,
+              boolean binary) throws IOException {
+        this.outputPath = outputPath;
+        this.counter = counter;
+        this.cache = cache;
+        this.memo = memo;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.format = "%s %0" + counter.function().digits() + "x %s%n";
+        this.binary = binary;
+        this.recorder = new Visitor(null, counter, cache, memo, null, stats) {
+            @Override
+            void write(long hash, String file) {
+                update(file, hash);
+            }
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                register(dir);
+                walked.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        };
+    }
+
+    void run(List<String> roots) throws IOException, InterruptedException {
+        for (var root : roots) {
+            scan(root);
+        }
+        save();
+        reporting = true;
+        while (!directories.isEmpty()) {
+            var key = watcher.take();
+            Thread.sleep(SETTLE_MILLIS);
+            // Files may change between batches, so hashes are shared only within one
+            if (memo != null) {
+                memo.clear();
+            }
+            do {
+                process(key);
+            } while ((key = watcher.poll()) != null);
+            save();
+        }
+    }
+
+    private void scan(String root) {
+        Path path;
+        try {
+            path = Paths.get(root);
+        } catch (InvalidPathException e) {
+            update(root, 0);
+            return;
+        }
+        walk(path);
+        var parent = path.toAbsolutePath().getParent();
+        if (!walked.contains(path) && parent != null && Files.isDirectory(parent)) {
+            fileRoots.put(path.toAbsolutePath(), path);
+            register(parent);
+        }
+    }
+
+    private void walk(Path path) {
+        try {
+            Files.walkFileTree(path, recorder);
+        } catch (IOException e) {
+            System.err.println("Failed to walk " + path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    // Hitting the watch limit shouldn't stop the others, changes in this directory are just missed
+    private void register(Path dir) {
+        try {
+            directories.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+        } catch (IOException e) {
+            System.err.println("Failed to watch " + dir + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private void process(WatchKey key) {
+        var dir = directories.get(key);
+        if (dir == null) {
+            key.cancel();
+            return;
+        }
+        for (var event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                if (walked.contains(dir)) {
+                    walk(dir);
+                } else {
+                    for (var root : fileRoots.entrySet()) {
+                        if (dir.equals(root.getKey().getParent())) {
+                            walk(root.getValue());
+                        }
+                    }
+                }
+                continue;
+            }
+            var child = dir.resolve((Path) event.context());
+            if (!walked.contains(dir)) {
+                child = fileRoots.get(child);
+                if (child == null) {
+                    continue;
+                }
+            }
+            if (event.kind() == ENTRY_DELETE) {
+                remove(child);
+            } else if (event.kind() == ENTRY_CREATE || !Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                walk(child);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+            walked.remove(dir);
+        }
+    }
+
+    private void update(String file, long hash) {
+        var previous = hashes.put(file, hash);
+        if (reporting && (previous == null || previous != hash)) {
+            System.out.printf(format, previous == null ? "A" : "M", hash, file);
+        }
+    }
+
+    private void remove(Path path) {
+        var file = path.toString();
+        if (hashes.remove(file) != null) {
+            System.out.printf(format, "D", 0, file);
+            return;
+        }
+        var prefix = file + path.getFileSystem().getSeparator();
+        for (var it = hashes.keySet().iterator(); it.hasNext(); ) {
+            var next = it.next();
+            if (next.startsWith(prefix)) {
+                it.remove();
+                System.out.printf(format, "D", 0, next);
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        var temp = outputPath.resolveSibling(outputPath.getFileName() + ".tmp");
+        try (var writer = ResultWriter.open(temp, binary, counter)) {
+            for (var entry : hashes.entrySet()) {
+                writer.write(entry.getValue(), entry.getKey());
+            }
+        }
+        try {
+            Files.move(temp, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (cache != null) {
+            cache.save();
+        }
+        System.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+}
@@ -0,0 +1,10 @@
+#!/bin/bash
+java -classpath ../out/production/java-advanced-2019:../lib/junit-4.11.jar:../lib/hamcrest-core-1.3.jar org.junit.runner.JUnitCore \
+    ru.ifmo.rain.sokolov.walk.WalkModesTest \
+    ru.ifmo.rain.sokolov.walk.WalkInternalsTest \
+    ru.ifmo.rain.sokolov.arrayset.IntArraySetTest \
+    ru.ifmo.rain.sokolov.arrayset.LongArraySetTest \
+    ru.ifmo.rain.sokolov.arrayset.ArraySetTest \
+    ru.ifmo.rain.sokolov.arrayset.BlockArraySetTest \
+    ru.ifmo.rain.sokolov.arrayset.ArrayMapTest \
+    ru.ifmo.rain.sokolov.arrayset.FrontCodedStringSetTest